@@ -5,7 +5,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "api_key")
+@Table(name = "api_key", indexes = {
+        @Index(name = "idx_api_key_status_expiracao", columnList = "status, data_expiracao"),
+        // Chaves novas lidas pelo ApiKeyCache
+        @Index(name = "idx_api_key_data_criacao", columnList = "data_criacao")
+})
 public class ApiKey extends PanacheEntity {
 
     @Column(unique = true, nullable = false)
@@ -24,6 +28,13 @@ public class ApiKey extends PanacheEntity {
     @Enumerated(EnumType.STRING)
     public StatusApiKey status = StatusApiKey.ATIVA;
 
+    // Uso acumulado em memória e gravado em lote pelo UsoApiKeys, nunca a cada requisição
+    @Column(name = "ultimo_uso")
+    public LocalDateTime ultimoUso;
+
+    @Column(name = "total_requisicoes", nullable = false)
+    public long totalRequisicoes;
+
     public enum StatusApiKey {
         ATIVA,
         INATIVA,
@@ -1,17 +1,29 @@
 package org.acme;
 
 import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.ext.Provider;
 import java.io.IOException;
+import java.security.Principal;
 
 @Provider
 @Priority(Priorities.AUTHENTICATION)
 public class ApiKeyAuthFilter implements ContainerRequestFilter {
 
+    @Inject
+    ApiKeyCache apiKeyCache;
+
+    @Inject
+    TokenAcesso tokenAcesso;
+
+    @Inject
+    UsoApiKeys usoApiKeys;
+
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
         String path = requestContext.getUriInfo().getPath();
@@ -21,6 +33,19 @@ public class ApiKeyAuthFilter implements ContainerRequestFilter {
             return;
         }
 
+        // Token de acesso emitido no login: validado só com o MAC, sem banco
+        String authorization = requestContext.getHeaderString("Authorization");
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            TokenAcesso.Dados token = tokenAcesso.verificar(authorization.substring(7).trim());
+            if (token == null) {
+                requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                        .entity("{\"message\": \"Token inválido ou expirado\"}").build());
+                return;
+            }
+            autenticar(requestContext, token.usuarioId(), token.tipo(), "Bearer");
+            return;
+        }
+
         String apiKey = requestContext.getHeaderString("X-API-Key");
 
         if (apiKey == null || apiKey.isBlank()) {
@@ -29,11 +54,42 @@ public class ApiKeyAuthFilter implements ContainerRequestFilter {
             return;
         }
 
-        ApiKey key = ApiKey.findByChave(apiKey);
-        if (key == null || key.isExpirada()) {
+        ApiKeyCache.ChaveValidada key = apiKeyCache.validar(apiKey);
+        if (key == null) {
             requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
                     .entity("{\"message\": \"API key inválida ou expirada\"}").build());
+            return;
         }
+        usoApiKeys.registrar(key.id());
+        autenticar(requestContext, key.usuarioId(), key.tipoUsuario(), "X-API-Key");
+    }
+
+    // Expõe o usuário aos recursos via SecurityContext; o tipo do usuário é o papel
+    private void autenticar(ContainerRequestContext requestContext, Long usuarioId, Usuario.TipoUsuario tipo,
+                            String esquema) {
+        boolean seguro = requestContext.getSecurityContext().isSecure();
+        Principal principal = () -> String.valueOf(usuarioId);
+        requestContext.setSecurityContext(new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return principal;
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return tipo != null && tipo.name().equals(role);
+            }
+
+            @Override
+            public boolean isSecure() {
+                return seguro;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return esquema;
+            }
+        });
     }
 
     private boolean isPublicRoute(String path, String method) {
@@ -0,0 +1,252 @@
+package org.acme;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache das API keys já validadas, para que a autenticação não consulte o
+ * banco a cada requisição.
+ *
+ * Guarda dono, tipo do dono, status e expiração de cada chave ativa. Chaves
+ * inexistentes ou inativas também são guardadas (entrada negativa), com um
+ * prazo curto. Uma entrada positiva nunca sobrevive à expiração da chave, e
+ * revogações e exclusões de usuário a removem assim que a transação confirma.
+ *
+ * Na frente do cache fica um {@link FiltroBloom} com todas as chaves ativas:
+ * valores que certamente não existem (tentativas de adivinhar chaves) são
+ * recusados em memória, sem consulta ao banco e sem ocupar o cache. Chaves
+ * geradas nesta instância entram nele na hora, e as geradas por outras
+ * instâncias a cada {@code festival.api-key.bloom.novas.intervalo}, lidas
+ * pela data de criação. O filtro é remontado do banco periodicamente, o que
+ * tira as revogadas; até lá uma chave revogada ainda passa pelo filtro, e a
+ * recusa vem do cache ou do banco.
+ */
+@ApplicationScoped
+public class ApiKeyCache {
+
+    @ConfigProperty(name = "festival.api-key.cache.max-entradas", defaultValue = "10000")
+    long maxEntradas;
+
+    @ConfigProperty(name = "festival.api-key.cache.ttl", defaultValue = "10m")
+    Duration ttl;
+
+    @ConfigProperty(name = "festival.api-key.cache.ttl-negativo", defaultValue = "30s")
+    Duration ttlNegativo;
+
+    @ConfigProperty(name = "festival.api-key.bloom.capacidade", defaultValue = "100000")
+    long capacidadeFiltro;
+
+    @ConfigProperty(name = "festival.api-key.bloom.falso-positivo", defaultValue = "0.001")
+    double falsoPositivoFiltro;
+
+    @ConfigProperty(name = "festival.api-key.bloom.novas.margem", defaultValue = "1m")
+    Duration margemNovas;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    TransactionSynchronizationRegistry txRegistry;
+
+    @Inject
+    EntityManager em;
+
+    /** Dados de uma chave ativa, suficientes para autenticar sem ir ao banco. */
+    public record ChaveValidada(Long id, Long usuarioId, Usuario.TipoUsuario tipoUsuario, LocalDateTime dataExpiracao) {
+
+        public boolean isExpirada() {
+            return dataExpiracao != null && LocalDateTime.now().isAfter(dataExpiracao);
+        }
+    }
+
+    // Marca chaves inexistentes ou inativas
+    private static final ChaveValidada NEGATIVA = new ChaveValidada(null, null, null, null);
+
+    private Cache<String, ChaveValidada> chaves;
+
+    private volatile FiltroBloom filtro;
+    // Até o filtro ser montado, toda chave é consultada normalmente
+    private volatile boolean filtroPronto;
+    // Chaves geradas desde o início da montagem anterior; entram também no próximo filtro,
+    // mesmo que a transação que as criou ainda não estivesse confirmada quando o banco foi lido
+    private Set<String> recentes = ConcurrentHashMap.newKeySet();
+    // Início da última leitura do banco que pôs no filtro todas as chaves ativas criadas até então
+    private volatile LocalDateTime lidasAte;
+    private Counter recusadasPeloFiltro;
+
+    @PostConstruct
+    void iniciar() {
+        chaves = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfter(new Expiry<String, ChaveValidada>() {
+                    @Override
+                    public long expireAfterCreate(String chave, ChaveValidada valor, long agora) {
+                        if (valor == NEGATIVA) {
+                            return ttlNegativo.toNanos();
+                        }
+                        if (valor.dataExpiracao() == null) {
+                            return ttl.toNanos();
+                        }
+                        long ateExpirar = Duration.between(LocalDateTime.now(), valor.dataExpiracao()).toNanos();
+                        return Math.max(0, Math.min(ttl.toNanos(), ateExpirar));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String chave, ChaveValidada valor, long agora, long duracaoAtual) {
+                        return expireAfterCreate(chave, valor, agora);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String chave, ChaveValidada valor, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, chaves, "api-keys");
+
+        filtro = new FiltroBloom(capacidadeFiltro, falsoPositivoFiltro);
+        Gauge.builder("apikey.bloom.falso.positivo", this, c -> c.filtro.taxaFalsoPositivoEstimada())
+                .description("Taxa de falsos positivos estimada do filtro de API keys")
+                .register(registry);
+        Gauge.builder("apikey.bloom.memoria", this, c -> c.filtro.bytes())
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("apikey.bloom.elementos", this, c -> c.filtro.elementos())
+                .register(registry);
+        recusadasPeloFiltro = Counter.builder("apikey.bloom.recusadas")
+                .description("API keys recusadas pelo filtro sem consulta ao banco")
+                .register(registry);
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        montarFiltro();
+    }
+
+    /** Monta um filtro novo com as chaves ativas do banco e o coloca no lugar do atual. */
+    @Scheduled(every = "${festival.api-key.bloom.remontagem:5m}", delayed = "${festival.api-key.bloom.remontagem:5m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void montarFiltro() {
+        LocalDateTime inicio = LocalDateTime.now();
+        Set<String> anteriores;
+        synchronized (this) {
+            anteriores = recentes;
+            recentes = ConcurrentHashMap.newKeySet();
+        }
+        FiltroBloom novo = new FiltroBloom(capacidadeFiltro, falsoPositivoFiltro);
+        QuarkusTransaction.requiringNew().run(() -> ApiKey.<ApiKey>stream("status", ApiKey.StatusApiKey.ATIVA)
+                .forEach(apiKey -> novo.adicionar(apiKey.chave)));
+        synchronized (this) {
+            for (Set<String> geradas : List.of(anteriores, recentes)) {
+                geradas.stream().filter(chave -> !novo.talvezContenha(chave)).forEach(novo::adicionar);
+            }
+            filtro = novo;
+        }
+        lidasAte = inicio;
+        filtroPronto = true;
+    }
+
+    /**
+     * Inclui no filtro as chaves ativas criadas desde a última leitura, como
+     * as geradas por outras instâncias. A margem cobre transações que
+     * confirmam depois da data de criação e relógios um pouco adiantados.
+     */
+    @Scheduled(every = "${festival.api-key.bloom.novas.intervalo:5s}", delayed = "${festival.api-key.bloom.novas.intervalo:5s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void incluirNovas() {
+        LocalDateTime desde = lidasAte;
+        if (desde == null) {
+            return;
+        }
+        LocalDateTime inicio = LocalDateTime.now();
+        List<String> novas = QuarkusTransaction.requiringNew().call(() -> em.createQuery(
+                        "select k.chave from ApiKey k where k.status = :ativa and k.dataCriacao > :desde", String.class)
+                .setParameter("ativa", ApiKey.StatusApiKey.ATIVA)
+                .setParameter("desde", desde.minus(margemNovas))
+                .getResultList());
+        synchronized (this) {
+            // Cada chave entra uma vez, mesmo lida de novo dentro da margem
+            novas.stream().filter(chave -> !filtro.talvezContenha(chave)).forEach(this::adicionar);
+        }
+        lidasAte = inicio;
+    }
+
+    /** Retorna a chave se ela existir, estiver ativa e não expirada; caso contrário null. */
+    public ChaveValidada validar(String chave) {
+        if (filtroPronto && !filtro.talvezContenha(chave)) {
+            recusadasPeloFiltro.increment();
+            return null;
+        }
+        ChaveValidada validada = chaves.get(chave, ApiKeyCache::carregar);
+        if (validada == NEGATIVA) {
+            return null;
+        }
+        if (validada.isExpirada()) {
+            chaves.invalidate(chave);
+            return null;
+        }
+        return validada;
+    }
+
+    private static ChaveValidada carregar(String chave) {
+        ApiKey apiKey = ApiKey.findByChave(chave);
+        if (apiKey == null) {
+            return NEGATIVA;
+        }
+        return new ChaveValidada(apiKey.id, apiKey.usuario.id, apiKey.usuario.tipo, apiKey.dataExpiracao);
+    }
+
+    /** Inclui uma chave recém-gerada no filtro, antes mesmo do commit, para que possa ser usada logo. */
+    public synchronized void adicionar(String chave) {
+        filtro.adicionar(chave);
+        recentes.add(chave);
+    }
+
+    /**
+     * Tira do cache uma chave que estava ativa. Ela continua no filtro até a
+     * próxima montagem: remover do filtro uma chave que a montagem já deixou
+     * de fora apagaria contadores de outras chaves.
+     */
+    public void revogar(String chave) {
+        invalidar(chave);
+    }
+
+    /** Remove a chave do cache agora e de novo quando a transação corrente terminar. */
+    public void invalidar(String chave) {
+        chaves.invalidate(chave);
+        depoisDaTransacao(() -> chaves.invalidate(chave));
+    }
+
+    /** Remove todas as chaves do usuário, como {@link #invalidar}. */
+    public void invalidarUsuario(Long usuarioId) {
+        Runnable remover = () -> chaves.asMap().values().removeIf(c -> usuarioId.equals(c.usuarioId()));
+        remover.run();
+        depoisDaTransacao(remover);
+    }
+
+    // Uma leitura concorrente pode recarregar o estado antigo antes do commit
+    private void depoisDaTransacao(Runnable acao) {
+        AposTransacao.registrar(txRegistry, status -> acao.run());
+    }
+}
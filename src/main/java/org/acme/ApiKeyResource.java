@@ -1,5 +1,7 @@
 package org.acme;
 
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -17,12 +19,17 @@ import java.util.stream.Collectors;
 @Tag(name = "API Keys", description = "Gerenciamento de chaves de API")
 public class ApiKeyResource {
 
+    @Inject
+    ApiKeyCache apiKeyCache;
+
     public static class ApiKeyResponse {
         public Long id;
         public String chave;
         public String dataCriacao;
         public String dataExpiracao;
         public String status;
+        public String ultimoUso;
+        public long totalRequisicoes;
 
         public ApiKeyResponse(ApiKey apiKey) {
             this.id = apiKey.id;
@@ -30,6 +37,8 @@ public class ApiKeyResource {
             this.dataCriacao = apiKey.dataCriacao.toString();
             this.dataExpiracao = apiKey.dataExpiracao != null ? apiKey.dataExpiracao.toString() : null;
             this.status = apiKey.status.toString();
+            this.ultimoUso = apiKey.ultimoUso != null ? apiKey.ultimoUso.toString() : null;
+            this.totalRequisicoes = apiKey.totalRequisicoes;
         }
     }
 
@@ -48,6 +57,7 @@ public class ApiKeyResource {
         String apiKey = generateSecureKey();
         ApiKey novaChave = new ApiKey(apiKey, usuario);
         novaChave.persist();
+        apiKeyCache.adicionar(apiKey);
 
         return Response.status(Response.Status.CREATED)
                 .entity(new ApiKeyResponse(novaChave))
@@ -73,13 +83,18 @@ public class ApiKeyResource {
     @Operation(summary = "Revogar API Key", description = "Revoga uma API Key específica")
     @Transactional
     public Response revokeApiKey(@PathParam("apiKeyId") Long apiKeyId) {
-        ApiKey apiKey = ApiKey.findById(apiKeyId);
+        // Travada para não concorrer com a expiração em lote da mesma chave
+        ApiKey apiKey = ApiKey.findById(apiKeyId, LockModeType.PESSIMISTIC_WRITE);
         if (apiKey == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("{\"message\": \"API Key não encontrada\"}")
                     .build();
         }
 
+        // Só chaves ativas estão no cache de chaves validadas
+        if (apiKey.status == ApiKey.StatusApiKey.ATIVA) {
+            apiKeyCache.revogar(apiKey.chave);
+        }
         apiKey.status = ApiKey.StatusApiKey.REVOGADA;
         return Response.noContent().build();
     }
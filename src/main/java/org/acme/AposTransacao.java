@@ -0,0 +1,39 @@
+package org.acme;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Ações que só podem rodar depois que a transação corrente termina, como
+ * atualizar caches e índices em memória com escritas já confirmadas.
+ */
+final class AposTransacao {
+
+    private AposTransacao() {
+    }
+
+    /**
+     * Registra {@code acao} para rodar depois do commit ou do rollback da
+     * transação ativa, recebendo o status final ({@link Status#STATUS_COMMITTED}
+     * quando confirmou). Sem transação ativa nada é registrado e retorna false.
+     */
+    static boolean registrar(TransactionSynchronizationRegistry txRegistry, IntConsumer acao) {
+        if (txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return false;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                acao.accept(status);
+            }
+        });
+        return true;
+    }
+}
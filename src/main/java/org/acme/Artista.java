@@ -10,6 +10,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "artista")
+@EntityListeners({ContagemCache.Invalidador.class, IndiceBusca.Sincronizador.class})
 public class Artista extends PanacheEntity {
 
     @NotBlank(message = "O nome do artista é obrigatório")
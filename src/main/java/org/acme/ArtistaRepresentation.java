@@ -21,13 +21,25 @@ public class ArtistaRepresentation {
     public ArtistaRepresentation() {
     }
 
-    public static ArtistaRepresentation from(Artista artista, UriInfo uriInfo) {
-        ArtistaRepresentation rep = new ArtistaRepresentation();
-        rep.id = artista.id;
-        rep.nome = artista.nome;
-        rep.generoMusical = artista.generoMusical;
-        rep.biografia = artista.biografia;
+    /** Colunas de {@link #ArtistaRepresentation(Long, String, String, String)}. */
+    public static final String PROJECAO = "select id, nome, generoMusical, biografia from Artista";
+
+    /** Campos aceitos em {@code ?fields=}. */
+    public static final CamposEsparsos CAMPOS = new CamposEsparsos("Artista",
+            CamposEsparsos.coluna("id"),
+            CamposEsparsos.coluna("nome"),
+            CamposEsparsos.coluna("generoMusical"),
+            CamposEsparsos.coluna("biografia"));
+
+    // Usado pelas consultas de projeção, que criam a representação direto das colunas, sem entidade gerenciada
+    public ArtistaRepresentation(Long id, String nome, String generoMusical, String biografia) {
+        this.id = id;
+        this.nome = nome;
+        this.generoMusical = generoMusical;
+        this.biografia = biografia;
+    }
 
-        return rep;
+    public static ArtistaRepresentation from(Artista artista, UriInfo uriInfo) {
+        return new ArtistaRepresentation(artista.id, artista.nome, artista.generoMusical, artista.biografia);
     }
-}
\ No newline at end of file
+}
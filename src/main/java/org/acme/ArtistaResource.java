@@ -1,5 +1,6 @@
 package org.acme;
 
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
@@ -11,9 +12,11 @@ import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import io.quarkus.hibernate.orm.panache.PanacheQuery; // ← IMPORT ADICIONADO
 
@@ -26,6 +29,18 @@ public class ArtistaResource {
     @Context
     UriInfo uriInfo;
 
+    @Inject
+    ContagemCache contagemCache;
+
+    @Inject
+    IndiceBusca indiceBusca;
+
+    // Campos aceitos na paginação por cursor
+    private static final Map<String, PaginacaoCursor.Campo<Artista>> ORDENAVEIS = PaginacaoCursor.campos(
+            new PaginacaoCursor.Campo<>("id", Long.class, a -> a.id),
+            new PaginacaoCursor.Campo<>("nome", String.class, a -> a.nome),
+            new PaginacaoCursor.Campo<>("generoMusical", String.class, a -> a.generoMusical));
+
     private ArtistaRepresentation rep(Artista a) {
         return ArtistaRepresentation.from(a, uriInfo);
     }
@@ -35,50 +50,67 @@ public class ArtistaResource {
     }
 
     @GET
-    @Operation(summary = "Listar todos os artistas com paginação")
+    @Operation(summary = "Listar todos os artistas com paginação", description = "Com o parâmetro cursor (vazio na primeira página) usa paginação por cursor; senão, page/size, com o total no modo do parâmetro total (exato, cache, estimado ou nenhum). fields limita os campos retornados (ex.: fields=id,nome,status)")
     public Response getAll(
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("10") int size,
             @QueryParam("sort") @DefaultValue("nome") String sort,
-            @QueryParam("direction") @DefaultValue("asc") String direction) {
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") String total,
+            @QueryParam("fields") String fields) {
+
+        List<String> campos = ArtistaRepresentation.CAMPOS.solicitados(fields);
+        if (PaginacaoCursor.solicitada(uriInfo)) {
+            return paginarPorCursor(List.of(), Map.of(), sort, direction, size, cursor, campos);
+        }
 
         String orderBy = "ORDER BY " + sort + " " + direction;
-        PanacheQuery<Artista> query = Artista.find(orderBy);
-        List<Artista> artistas = query.page(page, size).list();
-        long totalCount = query.count();
-
-        List<ArtistaRepresentation> representations = repList(artistas);
-        PageResponse<ArtistaRepresentation> response =
-                new PageResponse<>(representations, page, size, totalCount);
-
-        return Response.ok(response).build();
+        return paginar(orderBy, Map.of(), "", Map.of(), page, size, total, campos);
     }
 
     @GET
     @Path("/search")
-    @Operation(summary = "Buscar artistas com paginação e filtros avançados")
+    @Operation(summary = "Buscar artistas com paginação e filtros avançados", description = "Aceita os parâmetros cursor, total e fields como a listagem")
     public Response searchArtistas(
             @QueryParam("nome") String nome,
             @QueryParam("genero") String genero,
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("10") int size,
             @QueryParam("sort") @DefaultValue("nome") String sort,
-            @QueryParam("direction") @DefaultValue("asc") String direction) {
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") String total,
+            @QueryParam("fields") String fields) {
+
+        List<String> campos = ArtistaRepresentation.CAMPOS.solicitados(fields);
 
         // Construir query dinâmica
         StringBuilder queryBuilder = new StringBuilder();
         Map<String, Object> params = new HashMap<>();
 
         List<String> conditions = new java.util.ArrayList<>();
+        // Os filtros de texto vêm do índice invertido, cruzados numa lista só de ids; os totais em cache são guardados pelo texto
+        List<List<IndiceTextual.Resultado>> filtrosTexto = new ArrayList<>();
+        Map<String, Object> textos = new TreeMap<>();
 
         if (nome != null && !nome.trim().isEmpty()) {
-            conditions.add("nome LIKE :nome");
-            params.put("nome", "%" + nome + "%");
+            filtrosTexto.add(indiceBusca.buscarArtistas(nome, "nome"));
+            textos.put("nome", nome);
         }
 
         if (genero != null && !genero.trim().isEmpty()) {
-            conditions.add("generoMusical LIKE :genero");
-            params.put("genero", "%" + genero + "%");
+            filtrosTexto.add(indiceBusca.buscarArtistas(genero, "generoMusical"));
+            textos.put("genero", genero);
+        }
+
+        if (!filtrosTexto.isEmpty()) {
+            conditions.add("id in :ids");
+            params.put("ids", indiceBusca.idsEmTodos(filtrosTexto));
+        }
+
+        if (PaginacaoCursor.solicitada(uriInfo)) {
+            return paginarPorCursor(conditions, params, sort, direction, size, cursor, campos);
         }
 
         String whereClause = "";
@@ -90,15 +122,63 @@ public class ArtistaResource {
         String fullQuery = whereClause + " " + orderBy;
 
         // Consulta paginada
-        PanacheQuery<Artista> panacheQuery = Artista.find(fullQuery, params);
-        List<Artista> artistas = panacheQuery.page(page, size).list();
-        long totalCount = panacheQuery.count();
+        Map<String, Object> chaveContagem = new HashMap<>(params);
+        if (!textos.isEmpty()) {
+            chaveContagem.put("ids", textos);
+        }
+        return paginar(fullQuery, params, whereClause, chaveContagem, page, size, total, campos);
+    }
+
+    @GET
+    @Path("/busca")
+    @Operation(summary = "Busca textual de artistas", description = "Busca em nome, gênero e biografia, sem diferenciar acentos e maiúsculas; resultados por relevância")
+    public Response buscaTextual(
+            @QueryParam("q") String q,
+            @QueryParam("page") @DefaultValue("0") int page,
+            @QueryParam("size") @DefaultValue("10") int size) {
 
-        List<ArtistaRepresentation> representations = repList(artistas);
-        PageResponse<ArtistaRepresentation> response =
-                new PageResponse<>(representations, page, size, totalCount);
+        if (q == null || q.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Parâmetro 'q' é obrigatório\"}")
+                    .build();
+        }
+        if (page < 0 || size < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Use page >= 0 e size > 0\"}")
+                    .build();
+        }
+        List<Long> ids = IndiceBusca.ids(indiceBusca.buscarArtistas(q));
+        List<Long> pagina = ids.subList(Math.min(ids.size(), page * size), Math.min(ids.size(), (page + 1) * size));
+        List<Artista> artistas = pagina.isEmpty() ? List.of() : IndiceBusca.naOrdem(pagina, Artista.list("id in ?1", pagina));
+        return Response.ok(new PageResponse<>(repList(artistas), page, size, ids.size())).build();
+    }
+
+    // Página completa, projetada direto na representação, ou só com os campos de ?fields=
+    private Response paginar(String fullQuery, Map<String, Object> params, String whereClause,
+                             Map<String, Object> chaveContagem, int page, int size, String total, List<String> campos) {
+        if (campos != null) {
+            // Só as colunas pedidas entram no SELECT
+            PanacheQuery<Object[]> parcial =
+                    Artista.find(ArtistaRepresentation.CAMPOS.projecao(campos) + " " + fullQuery, params).project(Object[].class);
+            return Response.ok(contagemCache.paginar(Artista.class, parcial, whereClause, chaveContagem, page, size, total,
+                    linhas -> ArtistaRepresentation.CAMPOS.montar(campos, linhas))).build();
+        }
+        // Projeção: as linhas viram representações direto, sem entidades no contexto de persistência
+        PanacheQuery<ArtistaRepresentation> query =
+                Artista.find(ArtistaRepresentation.PROJECAO + " " + fullQuery, params).project(ArtistaRepresentation.class);
+        return Response.ok(contagemCache.paginar(
+                Artista.class, query, whereClause, chaveContagem, page, size, total, reps -> reps)).build();
+    }
 
-        return Response.ok(response).build();
+    private Response paginarPorCursor(List<String> conditions, Map<String, Object> params,
+                                      String sort, String direction, int size, String cursor, List<String> campos) {
+        PaginacaoCursor.Pagina<Artista> pagina = PaginacaoCursor.buscar(
+                (query, parametros) -> Artista.find(query, parametros), ORDENAVEIS,
+                conditions, params, sort, direction, size, cursor);
+        List<ArtistaRepresentation> reps = repList(pagina.itens());
+        // A página por cursor precisa das entidades; com fields, só a resposta é reduzida
+        List<?> content = campos == null ? reps : ArtistaRepresentation.CAMPOS.filtrar(campos, reps);
+        return Response.ok(new CursorPageResponse<>(content, size, pagina.proximoCursor())).build();
     }
 
     @GET
@@ -157,9 +237,7 @@ public class ArtistaResource {
             return Response.status(404).build();
         }
 
-        List<EventoRepresentation> representations = artista.eventos.stream()
-                .map(evento -> EventoRepresentation.from(evento, uriInfo))
-                .collect(Collectors.toList());
+        List<EventoRepresentation> representations = EventoRepresentation.fromList(artista.eventos, uriInfo);
 
         return Response.ok(representations).build();
     }
@@ -167,17 +245,19 @@ public class ArtistaResource {
     // Endpoints de busca simples (mantidos para compatibilidade)
     @GET
     @Path("/busca/nome/{nome}")
-    @Operation(summary = "Buscar artistas por nome", description = "Busca artistas que contenham o nome especificado")
+    @Operation(summary = "Buscar artistas por nome", description = "Busca artistas cujo nome contenha os termos, sem diferenciar acentos e maiúsculas, por relevância")
     public Response buscarPorNome(@PathParam("nome") String nome) {
-        List<Artista> artistas = Artista.list("nome LIKE ?1", "%" + nome + "%");
+        List<Long> ids = indiceBusca.idsEmTodos(List.of(indiceBusca.buscarArtistas(nome, "nome")));
+        List<Artista> artistas = ids.isEmpty() ? List.of() : IndiceBusca.naOrdem(ids, Artista.list("id in ?1", ids));
         return Response.ok(repList(artistas)).build();
     }
 
     @GET
     @Path("/genero/{genero}")
-    @Operation(summary = "Buscar artistas por gênero", description = "Busca artistas do gênero musical especificado")
+    @Operation(summary = "Buscar artistas por gênero", description = "Busca artistas do gênero musical especificado, sem diferenciar acentos e maiúsculas")
     public Response buscarPorGenero(@PathParam("genero") String genero) {
-        List<Artista> artistas = Artista.list("generoMusical LIKE ?1", "%" + genero + "%");
+        List<Long> ids = indiceBusca.idsEmTodos(List.of(indiceBusca.buscarArtistas(genero, "generoMusical")));
+        List<Artista> artistas = ids.isEmpty() ? List.of() : IndiceBusca.naOrdem(ids, Artista.list("id in ?1", ids));
         return Response.ok(repList(artistas)).build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package org.acme;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Árvore de prefixos (trie) por segmento de caminho, que associa modelos de
+ * rota como {@code /api/v1/eventos/{id}/ingressos} e um método HTTP a um valor.
+ *
+ * A busca percorre um nó por segmento do caminho, então o custo depende da
+ * profundidade da URL e não do número de rotas cadastradas. Segmentos
+ * literais têm precedência sobre parâmetros, e um método específico tem
+ * precedência sobre {@code *}.
+ */
+public class ArvoreRotas<V> {
+
+    /** Valor encontrado e o modelo de rota que o produziu. */
+    public record Correspondencia<V>(String modelo, V valor) {
+    }
+
+    private static final String QUALQUER_METODO = "*";
+
+    private static final class No<V> {
+        final Map<String, No<V>> literais = new HashMap<>();
+        No<V> parametro;
+        final Map<String, Correspondencia<V>> porMetodo = new HashMap<>();
+    }
+
+    private final No<V> raiz = new No<>();
+
+    /** Registra {@code valor} para o método ({@code *} para todos) e o modelo de rota. */
+    public void adicionar(String metodo, String modelo, V valor) {
+        No<V> no = raiz;
+        for (String segmento : modelo.split("/")) {
+            if (segmento.isEmpty()) {
+                continue;
+            }
+            if (segmento.startsWith("{") && segmento.endsWith("}")) {
+                if (no.parametro == null) {
+                    no.parametro = new No<>();
+                }
+                no = no.parametro;
+            } else {
+                no = no.literais.computeIfAbsent(segmento, s -> new No<>());
+            }
+        }
+        String chaveMetodo = metodo.toUpperCase();
+        no.porMetodo.put(chaveMetodo, new Correspondencia<>(chaveMetodo + " " + modelo, valor));
+    }
+
+    /** Retorna a correspondência para o caminho e o método, ou null se nenhuma rota se aplicar. */
+    public Correspondencia<V> buscar(String metodo, String caminho) {
+        return buscar(raiz, caminho, 0, metodo);
+    }
+
+    private Correspondencia<V> buscar(No<V> no, String caminho, int inicio, String metodo) {
+        while (inicio < caminho.length() && caminho.charAt(inicio) == '/') {
+            inicio++;
+        }
+        if (inicio >= caminho.length()) {
+            Correspondencia<V> encontrada = no.porMetodo.get(metodo);
+            return encontrada != null ? encontrada : no.porMetodo.get(QUALQUER_METODO);
+        }
+
+        int fim = caminho.indexOf('/', inicio);
+        if (fim < 0) {
+            fim = caminho.length();
+        }
+
+        No<V> literal = no.literais.get(caminho.substring(inicio, fim));
+        if (literal != null) {
+            Correspondencia<V> encontrada = buscar(literal, caminho, fim, metodo);
+            if (encontrada != null) {
+                return encontrada;
+            }
+        }
+        return no.parametro != null ? buscar(no.parametro, caminho, fim, metodo) : null;
+    }
+}
@@ -1,5 +1,6 @@
 package org.acme;
 
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
@@ -14,6 +15,12 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 @Tag(name = "Autenticação", description = "Operações de autenticação")
 public class AuthResource {
 
+    @Inject
+    TokenAcesso tokenAcesso;
+
+    @Inject
+    HashSenha hashSenha;
+
     public static class LoginRequest {
         public String email;
         public String senha;
@@ -24,6 +31,9 @@ public class AuthResource {
         public String nome;
         public String email;
         public Usuario.TipoUsuario tipo;
+        // Enviar como "Authorization: Bearer <token>"
+        public String token;
+        public long tokenExpiraEm;
 
         public LoginResponse(Usuario usuario) {
             this.usuarioId = usuario.id;
@@ -35,16 +45,37 @@ public class AuthResource {
 
     @POST
     @Path("/login")
-    @Operation(summary = "Fazer login", description = "Autentica um usuário e retorna informações básicas")
+    @Operation(summary = "Fazer login", description = "Autentica um usuário e retorna informações básicas e um token de acesso de curta duração")
     public Response login(@Valid LoginRequest loginRequest) {
         Usuario usuario = Usuario.findByEmail(loginRequest.email);
 
-        if (usuario == null || !usuario.verificarSenha(loginRequest.senha)) {
+        if (usuario == null || !hashSenha.verificar(loginRequest.senha, usuario.getSenha())) {
             return Response.status(Response.Status.UNAUTHORIZED)
                     .entity("{\"message\": \"Credenciais inválidas\"}")
                     .build();
         }
+        hashSenha.atualizarSeNecessario(usuario, loginRequest.senha);
+
+        LoginResponse response = new LoginResponse(usuario);
+        TokenAcesso.Emitido emitido = tokenAcesso.emitir(usuario);
+        response.token = emitido.token();
+        response.tokenExpiraEm = emitido.expiraEm();
+        return Response.ok(response).build();
+    }
 
-        return Response.ok(new LoginResponse(usuario)).build();
+    @POST
+    @Path("/logout")
+    @Operation(summary = "Fazer logout", description = "Revoga o token de acesso enviado no header Authorization")
+    public Response logout(@HeaderParam("Authorization") String authorization) {
+        TokenAcesso.Dados dados = authorization != null && authorization.startsWith("Bearer ")
+                ? tokenAcesso.verificar(authorization.substring(7).trim())
+                : null;
+        if (dados == null) {
+            return Response.status(Response.Status.UNAUTHORIZED)
+                    .entity("{\"message\": \"Token inválido ou expirado\"}")
+                    .build();
+        }
+        tokenAcesso.revogar(dados);
+        return Response.noContent().build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package org.acme;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.Response;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Campos parciais ({@code ?fields=id,nome,status}) nas listagens.
+ *
+ * Só as colunas dos campos pedidos entram no SELECT, e associações (como
+ * os artistas de um evento) só são carregadas quando pedidas, numa
+ * consulta para a página inteira. Cada item vira um mapa com os campos
+ * pedidos, na ordem da representação completa; {@code id} vem sempre.
+ * Datas e enums saem como texto, iguais às representações completas.
+ */
+public class CamposEsparsos {
+
+    /** Campo da representação: uma expressão no SELECT ou uma associação carregada pelos ids da página. */
+    public record Campo(String nome, String expressao, Function<List<Long>, Map<Long, ?>> carregar) {
+    }
+
+    public static Campo coluna(String nome) {
+        return new Campo(nome, nome, null);
+    }
+
+    public static Campo coluna(String nome, String expressao) {
+        return new Campo(nome, expressao, null);
+    }
+
+    public static Campo associacao(String nome, Function<List<Long>, Map<Long, ?>> carregar) {
+        return new Campo(nome, null, carregar);
+    }
+
+    private final String entidade;
+    private final Map<String, Campo> campos = new LinkedHashMap<>();
+
+    public CamposEsparsos(String entidade, Campo... campos) {
+        this.entidade = entidade;
+        for (Campo campo : campos) {
+            this.campos.put(campo.nome(), campo);
+        }
+    }
+
+    /**
+     * Campos pedidos em {@code fields}, na ordem da representação e sempre
+     * com {@code id}; null se o parâmetro não veio (representação completa).
+     */
+    public List<String> solicitados(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        List<String> pedidos = new ArrayList<>();
+        for (String nome : fields.split(",")) {
+            String campo = nome.trim();
+            if (campo.isEmpty()) {
+                continue;
+            }
+            if (!campos.containsKey(campo)) {
+                throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"message\": \"Campo '" + campo + "' inválido em fields; disponíveis: "
+                                + String.join(", ", campos.keySet()) + "\"}")
+                        .build());
+            }
+            pedidos.add(campo);
+        }
+        return campos.keySet().stream().filter(c -> c.equals("id") || pedidos.contains(c)).toList();
+    }
+
+    /** SELECT com as colunas dos campos pedidos, para completar com WHERE e ORDER BY. */
+    public String projecao(List<String> solicitados) {
+        List<String> colunas = new ArrayList<>();
+        for (String nome : solicitados) {
+            Campo campo = campos.get(nome);
+            if (campo.expressao() != null) {
+                colunas.add(campo.expressao());
+            }
+        }
+        return "select " + String.join(", ", colunas) + " from " + entidade;
+    }
+
+    /** Monta os itens a partir das linhas de {@link #projecao}, carregando as associações pedidas. */
+    public List<Map<String, Object>> montar(List<String> solicitados, List<Object[]> linhas) {
+        List<Map<String, Object>> itens = new ArrayList<>(linhas.size());
+        for (Object[] linha : linhas) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            int coluna = 0;
+            for (String nome : solicitados) {
+                // Associações entram depois, na posição certa do mapa
+                item.put(nome, campos.get(nome).expressao() != null ? texto(linha[coluna++]) : null);
+            }
+            itens.add(item);
+        }
+
+        List<Long> ids = itens.stream().map(item -> (Long) item.get("id")).toList();
+        for (String nome : solicitados) {
+            Campo campo = campos.get(nome);
+            if (campo.carregar() != null && !ids.isEmpty()) {
+                Map<Long, ?> valores = campo.carregar().apply(ids);
+                itens.forEach(item -> item.put(nome, valores.get((Long) item.get("id"))));
+            }
+        }
+        return itens;
+    }
+
+    /** Reduz representações completas aos campos pedidos (quando a consulta precisa das entidades). */
+    public List<Map<String, Object>> filtrar(List<String> solicitados, List<?> representacoes) {
+        List<Map<String, Object>> itens = new ArrayList<>(representacoes.size());
+        for (Object representacao : representacoes) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            for (String nome : solicitados) {
+                try {
+                    item.put(nome, representacao.getClass().getField(nome).get(representacao));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Campo " + nome + " ausente em " + representacao.getClass().getSimpleName(), e);
+                }
+            }
+            itens.add(item);
+        }
+        return itens;
+    }
+
+    private static Object texto(Object valor) {
+        return valor instanceof Temporal || valor instanceof Enum<?> ? valor.toString() : valor;
+    }
+}
@@ -0,0 +1,303 @@
+package org.acme;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saldo de capacidade de cada evento mantido em memória.
+ *
+ * A compra reserva lugares com CAS sobre o saldo (O(1)) em vez de contar os
+ * ingressos no banco. Eventos grandes usam um {@link CapacidadeListrada} com
+ * uma listra por núcleo, para que a vazão de compras em um único evento
+ * escale com o número de CPUs. O saldo é semeado do banco na inicialização e
+ * reconciliado periodicamente; reservas só são confirmadas quando a transação
+ * que as criou faz commit, e são devolvidas em caso de rollback.
+ */
+@ApplicationScoped
+public class CapacidadeLedger {
+
+    private final Map<Long, Saldo> saldos = new ConcurrentHashMap<>();
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry txRegistry;
+
+    @ConfigProperty(name = "festival.capacidade.listras.limiar", defaultValue = "10000")
+    long limiarListras;
+
+    @ConfigProperty(name = "festival.capacidade.listras.bloco", defaultValue = "64")
+    long blocoListras;
+
+    public enum Reserva {
+        // Reserva feita e ainda restam lugares
+        RESERVADO,
+        // Reserva feita e ela consumiu o último lugar (só uma reserva recebe este resultado)
+        ESGOTOU,
+        // Lugares insuficientes
+        INSUFICIENTE
+    }
+
+    static final class Saldo {
+        final CapacidadeListrada disponivel;
+        // Lugares reservados por transações ainda não concluídas
+        final AtomicLong pendentes = new AtomicLong();
+        // Operações sobre o saldo e os pendentes, incluindo o intervalo entre o início do commit e o
+        // ajuste depois dele: a reconciliação só aplica o que leu se nenhuma começou nem estava em andamento
+        final AtomicLong iniciadas = new AtomicLong();
+        final AtomicLong concluidas = new AtomicLong();
+        volatile long capacidade;
+
+        Saldo(CapacidadeListrada disponivel) {
+            this.disponivel = disponivel;
+        }
+
+        void operar(Runnable operacao) {
+            iniciadas.incrementAndGet();
+            try {
+                operacao.run();
+            } finally {
+                concluidas.incrementAndGet();
+            }
+        }
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        reconciliar();
+    }
+
+    /** Reserva {@code quantidade} lugares do evento. */
+    public Reserva reservar(Long eventoId, int quantidade) {
+        Saldo saldo = saldo(eventoId);
+        boolean[] reservado = new boolean[1];
+        saldo.operar(() -> {
+            saldo.pendentes.addAndGet(quantidade);
+            reservado[0] = saldo.disponivel.reservar(quantidade);
+            if (!reservado[0]) {
+                saldo.pendentes.addAndGet(-quantidade);
+            }
+        });
+        if (!reservado[0]) {
+            return Reserva.INSUFICIENTE;
+        }
+        aoConcluir(saldo,
+                () -> saldo.pendentes.addAndGet(-quantidade),
+                () -> {
+                    saldo.pendentes.addAndGet(-quantidade);
+                    saldo.disponivel.liberar(quantidade);
+                });
+        return saldo.disponivel.marcarSeEsgotado() ? Reserva.ESGOTOU : Reserva.RESERVADO;
+    }
+
+    /**
+     * Devolve lugares ao saldo do evento (cancelamento, exclusão ou redução de quantidade).
+     * A devolução só acontece se a transação corrente fizer commit.
+     */
+    public void liberar(Long eventoId, int quantidade) {
+        Saldo saldo = saldo(eventoId);
+        aoConcluir(saldo, () -> saldo.disponivel.liberar(quantidade), () -> { });
+    }
+
+    /**
+     * Mantém lugares já confirmados como pendentes até que o ingresso seja
+     * gravado no banco pelo {@link DiarioCompras}, para que a reconciliação
+     * não os considere livres nesse intervalo.
+     */
+    public void reterAteGravar(Long eventoId, int quantidade) {
+        Saldo saldo = saldo(eventoId);
+        saldo.operar(() -> saldo.pendentes.addAndGet(quantidade));
+    }
+
+    /**
+     * Marca o início da gravação de lugares retidos, antes do commit no
+     * banco; {@link #gravado} encerra. Enquanto isso a reconciliação não
+     * sabe se os ingressos já aparecem na contagem e deixa os eventos de lado.
+     */
+    Map<Long, Saldo> gravando(Set<Long> eventoIds) {
+        Map<Long, Saldo> gravando = new HashMap<>();
+        for (Long eventoId : eventoIds) {
+            Saldo saldo = saldos.get(eventoId);
+            if (saldo != null) {
+                saldo.iniciadas.incrementAndGet();
+                gravando.put(eventoId, saldo);
+            }
+        }
+        return gravando;
+    }
+
+    /** Encerra a gravação iniciada por {@link #gravando}; com sucesso, os lugares retidos deixam de ser pendentes. */
+    void gravado(Map<Long, Saldo> gravando, Map<Long, Integer> lugaresPorEvento, boolean sucesso) {
+        gravando.forEach((eventoId, saldo) -> {
+            if (sucesso) {
+                saldo.pendentes.addAndGet(-lugaresPorEvento.getOrDefault(eventoId, 0));
+            }
+            saldo.concluidas.incrementAndGet();
+        });
+    }
+
+    public long disponivel(Long eventoId) {
+        return Math.max(0, saldo(eventoId).disponivel.total());
+    }
+
+    public void ajustarCapacidade(Long eventoId, int novaCapacidade) {
+        Saldo saldo = saldo(eventoId);
+        aoConcluir(saldo, () -> {
+            long delta = novaCapacidade - saldo.capacidade;
+            saldo.capacidade = novaCapacidade;
+            saldo.disponivel.ajustar(delta);
+        }, () -> { });
+    }
+
+    public void remover(Long eventoId) {
+        Saldo saldo = saldos.get(eventoId);
+        if (saldo != null) {
+            aoConcluir(saldo, () -> saldos.remove(eventoId), () -> { });
+        }
+    }
+
+    /**
+     * Recalcula o saldo de todos os eventos a partir do banco. Eventos com
+     * reservas, devoluções ou commits em andamento durante a leitura ficam
+     * para a próxima rodada, para que o saldo não seja subestimado (o que
+     * marcaria o evento como esgotado) nem superestimado.
+     */
+    @Scheduled(every = "${festival.capacidade.reconciliacao:60s}", delayed = "${festival.capacidade.reconciliacao:60s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void reconciliar() {
+        // Só os eventos sem operação em andamento antes da leitura do banco
+        Map<Long, Long> iniciadasAntes = new HashMap<>();
+        saldos.forEach((id, saldo) -> {
+            long concluidas = saldo.concluidas.get();
+            long iniciadas = saldo.iniciadas.get();
+            if (iniciadas == concluidas) {
+                iniciadasAntes.put(id, iniciadas);
+            }
+        });
+
+        Map<Long, Long> vendidos = new HashMap<>();
+        for (Object[] linha : em.createQuery(
+                        "select i.evento.id, sum(i.quantidade) from Ingresso i where i.status <> :cancelado group by i.evento.id",
+                        Object[].class)
+                .setParameter("cancelado", Ingresso.StatusIngresso.CANCELADO)
+                .getResultList()) {
+            vendidos.put((Long) linha[0], ((Number) linha[1]).longValue());
+        }
+
+        List<Object[]> eventos = em.createQuery("select e.id, e.capacidadeMaxima from Evento e", Object[].class)
+                .getResultList();
+
+        Set<Long> existentes = new HashSet<>();
+        for (Object[] linha : eventos) {
+            Long id = (Long) linha[0];
+            long capacidade = linha[1] != null ? ((Number) linha[1]).longValue() : 0;
+            existentes.add(id);
+
+            long vendido = vendidos.getOrDefault(id, 0L);
+            Saldo saldo = saldos.get(id);
+            if (saldo == null) {
+                Saldo novo = novoSaldo(capacidade, capacidade - vendido);
+                saldo = saldos.putIfAbsent(id, novo);
+                if (saldo == null) {
+                    continue;
+                }
+            }
+            Long antes = iniciadasAntes.get(id);
+            if (antes == null) {
+                continue;
+            }
+            long atual = saldo.disponivel.total();
+            long pendentes = saldo.pendentes.get();
+            // Nenhuma operação começou desde antes da leitura: banco, total e pendentes formam um retrato só
+            if (saldo.iniciadas.get() != antes) {
+                continue;
+            }
+            saldo.capacidade = capacidade;
+            long alvo = capacidade - vendido - pendentes;
+            if (alvo != atual) {
+                // Ajuste relativo: operações que começarem agora se somam a ele sem distorcer o resultado
+                saldo.disponivel.ajustar(alvo - atual);
+            }
+        }
+        saldos.keySet().retainAll(existentes);
+    }
+
+    private Saldo saldo(Long eventoId) {
+        Saldo saldo = saldos.get(eventoId);
+        if (saldo != null) {
+            return saldo;
+        }
+        // Evento ainda não conhecido pelo ledger: semeia a partir do banco
+        Integer capacidade = em.createQuery("select e.capacidadeMaxima from Evento e where e.id = :id", Integer.class)
+                .setParameter("id", eventoId)
+                .getResultStream().findFirst().orElse(0);
+        Long vendido = em.createQuery(
+                        "select coalesce(sum(i.quantidade), 0) from Ingresso i where i.evento.id = :id and i.status <> :cancelado",
+                        Long.class)
+                .setParameter("id", eventoId)
+                .setParameter("cancelado", Ingresso.StatusIngresso.CANCELADO)
+                .getSingleResult();
+        Saldo novo = novoSaldo(capacidade, capacidade - vendido);
+        saldo = saldos.putIfAbsent(eventoId, novo);
+        return saldo != null ? saldo : novo;
+    }
+
+    // Eventos com capacidade acima do limiar recebem uma listra por núcleo
+    private Saldo novoSaldo(long capacidade, long disponivel) {
+        int numListras = capacidade >= limiarListras ? Runtime.getRuntime().availableProcessors() : 1;
+        Saldo saldo = new Saldo(new CapacidadeListrada(disponivel, numListras, blocoListras));
+        saldo.capacidade = capacidade;
+        return saldo;
+    }
+
+    // Executa a ação conforme o desfecho da transação corrente (ou imediatamente, se não houver transação).
+    // Do início do commit até a ação, a operação conta como em andamento no saldo
+    private void aoConcluir(Saldo saldo, Runnable commit, Runnable rollback) {
+        if (txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            saldo.operar(commit);
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            private boolean iniciada;
+
+            @Override
+            public void beforeCompletion() {
+                saldo.iniciadas.incrementAndGet();
+                iniciada = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                Runnable acao = status == Status.STATUS_COMMITTED ? commit : rollback;
+                if (!iniciada) {
+                    // Rollback sem commit iniciado
+                    saldo.operar(acao);
+                    return;
+                }
+                try {
+                    acao.run();
+                } finally {
+                    saldo.concluidas.incrementAndGet();
+                }
+            }
+        });
+    }
+}
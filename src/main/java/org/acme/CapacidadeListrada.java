@@ -0,0 +1,172 @@
+package org.acme;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contador de capacidade dividido em listras, no estilo do LongAdder.
+ *
+ * Cada listra recebe cotas em blocos de um reservatório central, de modo que
+ * threads diferentes reservam lugares sem disputar o mesmo CAS. Quando uma
+ * listra e o reservatório secam, as demais listras são devolvidas ao
+ * reservatório antes de recusar a reserva, então a recusa só acontece quando
+ * a soma de tudo é realmente insuficiente.
+ *
+ * Um bloco em trânsito (já retirado do reservatório, ainda não somado à
+ * listra) não aparece na soma. Por isso as transferências e devoluções
+ * seguram a trava de leitura, e as decisões que dependem da soma exata (recusar a reserva,
+ * marcar como esgotado) seguram a de escrita, quando nada está em trânsito.
+ */
+public class CapacidadeListrada {
+
+    // Cada listra ocupa 128 bytes para evitar false sharing entre núcleos
+    private static final int ESPACAMENTO = 16;
+
+    private final AtomicLong central;
+    private final AtomicLongArray listras;
+    private final int mascara;
+    private final long bloco;
+    private final AtomicBoolean esgotado = new AtomicBoolean();
+    // Leitura: transferências e devoluções de lugares; escrita: decisões pela soma exata
+    private final ReadWriteLock transferencias = new ReentrantReadWriteLock();
+
+    public CapacidadeListrada(long disponivel, int numListras, long bloco) {
+        int n = Integer.highestOneBit(Math.max(1, numListras));
+        this.central = new AtomicLong(disponivel);
+        this.listras = new AtomicLongArray(n * ESPACAMENTO);
+        this.mascara = n - 1;
+        this.bloco = Math.max(1, bloco);
+    }
+
+    /**
+     * Tenta reservar {@code quantidade} lugares.
+     *
+     * @return false se a capacidade total for insuficiente
+     */
+    public boolean reservar(long quantidade) {
+        int indice = indiceListra();
+        while (true) {
+            long local = listras.get(indice);
+            if (local >= quantidade) {
+                if (listras.compareAndSet(indice, local, local - quantidade)) {
+                    return true;
+                }
+                continue;
+            }
+            if (!abastecer(indice, quantidade - local)) {
+                break;
+            }
+        }
+        // Listra e reservatório secos: recolhe as cotas das outras listras e decide pela soma exata
+        transferencias.writeLock().lock();
+        try {
+            if (soma() < quantidade) {
+                return false;
+            }
+            // Com a trava nada entra no reservatório nem sai dele, e as listras ficam zeradas
+            rebalancear();
+            central.addAndGet(-quantidade);
+            return true;
+        } finally {
+            transferencias.writeLock().unlock();
+        }
+    }
+
+    /** Devolve lugares à listra da thread corrente. */
+    public void liberar(long quantidade) {
+        transferencias.readLock().lock();
+        try {
+            listras.addAndGet(indiceListra(), quantidade);
+            esgotado.set(false);
+        } finally {
+            transferencias.readLock().unlock();
+        }
+    }
+
+    /** Soma o delta ao reservatório central (pode deixá-lo negativo, como débito). */
+    public void ajustar(long delta) {
+        transferencias.readLock().lock();
+        try {
+            central.addAndGet(delta);
+            if (delta > 0) {
+                esgotado.set(false);
+            }
+        } finally {
+            transferencias.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marca o contador como esgotado se a soma exata chegou a zero.
+     *
+     * @return true apenas para a única chamada que fez a transição
+     */
+    public boolean marcarSeEsgotado() {
+        if (central.get() > 0) {
+            return false;
+        }
+        transferencias.writeLock().lock();
+        try {
+            return soma() <= 0 && esgotado.compareAndSet(false, true);
+        } finally {
+            transferencias.writeLock().unlock();
+        }
+    }
+
+    /** Soma exata do reservatório e de todas as listras. */
+    public long total() {
+        transferencias.writeLock().lock();
+        try {
+            return soma();
+        } finally {
+            transferencias.writeLock().unlock();
+        }
+    }
+
+    // Exata só com a trava de escrita
+    private long soma() {
+        long soma = central.get();
+        for (int i = 0; i <= mascara; i++) {
+            soma += listras.get(i * ESPACAMENTO);
+        }
+        return soma;
+    }
+
+    // Move um bloco do reservatório central para a listra
+    private boolean abastecer(int indice, long faltante) {
+        transferencias.readLock().lock();
+        try {
+            while (true) {
+                long atual = central.get();
+                if (atual <= 0) {
+                    return false;
+                }
+                long retirada = Math.min(atual, Math.max(bloco, faltante));
+                if (central.compareAndSet(atual, atual - retirada)) {
+                    listras.addAndGet(indice, retirada);
+                    return true;
+                }
+            }
+        } finally {
+            transferencias.readLock().unlock();
+        }
+    }
+
+    // Só com a trava de escrita: nenhuma cota fica em trânsito fora da soma
+    private void rebalancear() {
+        for (int i = 0; i <= mascara; i++) {
+            long cota = listras.getAndSet(i * ESPACAMENTO, 0);
+            if (cota != 0) {
+                central.addAndGet(cota);
+            }
+        }
+    }
+
+    private int indiceListra() {
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 32) & mascara) * ESPACAMENTO;
+    }
+}
@@ -0,0 +1,108 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.faulttolerance.Retry;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lógica de compra de ingressos, compartilhada entre o endpoint de compra
+ * direta e os workers da fila virtual.
+ */
+@ApplicationScoped
+public class CompraIngressoService {
+
+    @Inject
+    CapacidadeLedger capacidadeLedger;
+
+    @Inject
+    ExpiracaoReservas expiracaoReservas;
+
+    @Inject
+    DiarioCompras diarioCompras;
+
+    @Inject
+    IdempotencyStore idempotencyStore;
+
+    /**
+     * Efetua uma compra. Cada tentativa roda na sua própria transação: um
+     * conflito de versão no evento desfaz a tentativa inteira e a compra é
+     * repetida sobre dados recarregados, sem serializar as escritas com locks
+     * pessimistas. A resposta é gravada como registro de idempotência na
+     * mesma transação; o agrupamento de requisições repetidas fica a cargo de
+     * quem chama, via {@link IdempotencyStore#executar}, para que as
+     * retentativas não sejam vistas como requisições concorrentes com a mesma chave.
+     */
+    @Retry(maxRetries = 3, delay = 25, jitter = 20, retryOn = OptimisticLockException.class)
+    public Response comprar(String idempotencyKey, Long eventoId, CreateIngressoRequest request) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Response resposta = processar(eventoId, request);
+            idempotencyStore.gravar(idempotencyKey, impressao(eventoId, request), resposta);
+            return resposta;
+        });
+    }
+
+    /** Identifica o conteúdo de uma compra, para detectar chaves de idempotência reutilizadas com outro corpo. */
+    public static String impressao(Long eventoId, CreateIngressoRequest request) {
+        return IdempotencyStore.impressao(eventoId, request.getNomeComprador(), request.getEmailComprador(), request.getQuantidade());
+    }
+
+    private Response processar(Long eventoId, CreateIngressoRequest request) {
+        Evento evento = Evento.findById(eventoId);
+        if (evento == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"message\": \"Evento não encontrado\"}")
+                    .build();
+        }
+        
+        // Verifica se o evento está em um status que permite compra
+        if (evento.status == Evento.StatusEvento.ESGOTADO || evento.status == Evento.StatusEvento.CANCELADO) {
+             return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Não é possível comprar ingressos para um evento " + evento.status.toString() + ".\"}")
+                    .build();
+        }
+
+        // Reservar capacidade no ledger em memória (O(1), sem contagem no banco)
+        CapacidadeLedger.Reserva reserva = capacidadeLedger.reservar(evento.id, request.getQuantidade());
+        if (reserva == CapacidadeLedger.Reserva.INSUFICIENTE) {
+             return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Capacidade máxima do evento excedida. Disponíveis: " + capacidadeLedger.disponivel(evento.id) + "\"}")
+                    .build();
+        }
+
+        // Criar ingresso
+        Ingresso ingresso = new Ingresso();
+        ingresso.nomeComprador = request.getNomeComprador();
+        ingresso.emailComprador = request.getEmailComprador();
+        ingresso.quantidade = request.getQuantidade();
+        ingresso.evento = evento; // Associação com o evento
+        ingresso.dataCompra = LocalDateTime.now();
+        ingresso.precoTotal = request.getQuantidade() * evento.precoIngresso;
+        ingresso.status = Ingresso.StatusIngresso.RESERVADO; // Status inicial
+        ingresso.expiraEm = expiracaoReservas.novoPrazo();
+
+        // No modo de alta vazão a compra vai para o diário e é gravada no banco em segundo plano
+        if (!diarioCompras.isAtivo() || !diarioCompras.registrar(ingresso)) {
+            ingresso.persist();
+        }
+        expiracaoReservas.agendar(ingresso.id, ingresso.expiraEm);
+
+        // Atualizar status do evento se esta reserva consumiu o último lugar
+        if (reserva == CapacidadeLedger.Reserva.ESGOTOU) {
+            evento.status = Evento.StatusEvento.ESGOTADO;
+            evento.persist();
+            // Conflitos de versão aparecem aqui, e não no commit, para que a tentativa seja repetida
+            Evento.flush();
+        }
+
+        // Cria a resposta de sucesso
+        IngressoRepresentation responseRepresentation = IngressoRepresentation.from(ingresso, null);
+        return Response.status(Response.Status.CREATED)
+                .entity(responseRepresentation)
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package org.acme;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Hibernate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Totais das listagens paginadas sem um COUNT(*) a cada página.
+ *
+ * O parâmetro {@code total} escolhe o modo:
+ * <ul>
+ *   <li>{@code exato}: COUNT a cada página, como antes (padrão);</li>
+ *   <li>{@code cache}: COUNT só na primeira vez de cada filtro; as páginas
+ *       seguintes usam o total guardado;</li>
+ *   <li>{@code estimado}: nunca faz COUNT; usa o total guardado se houver,
+ *       senão o que a própria página revela (exato na última página, um
+ *       limite inferior nas outras);</li>
+ *   <li>{@code nenhum}: sem total, só {@code hasNext}.</li>
+ * </ul>
+ *
+ * Fora do modo exato a página busca uma linha a mais para saber se há
+ * próxima. Os totais guardados são descartados a cada escrita na entidade
+ * (via {@link Invalidador} e nas atualizações em lote) e expiram depois de
+ * {@code festival.paginacao.contagem.ttl}, o limite de atraso para escritas
+ * feitas por outras réplicas.
+ */
+@ApplicationScoped
+public class ContagemCache {
+
+    public enum ModoTotal {
+        EXATO,
+        CACHE,
+        ESTIMADO,
+        NENHUM
+    }
+
+    @ConfigProperty(name = "festival.paginacao.total-padrao", defaultValue = "exato")
+    String modoPadrao;
+
+    @ConfigProperty(name = "festival.paginacao.contagem.max-entradas", defaultValue = "10000")
+    long maxEntradas;
+
+    @ConfigProperty(name = "festival.paginacao.contagem.ttl", defaultValue = "5m")
+    Duration ttl;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    TransactionSynchronizationRegistry txRegistry;
+
+    private Cache<String, Long> totais;
+
+    // Geração por entidade: cada escrita muda a geração e torna inalcançáveis os totais anteriores
+    private final Map<Class<?>, AtomicLong> geracoes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void iniciar() {
+        totais = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, totais, "contagens");
+    }
+
+    /**
+     * Executa a consulta paginada no modo pedido. {@code filtro} identifica
+     * as condições da consulta (sem a ordenação), e {@code params} seus valores.
+     * A consulta pode ser uma projeção; {@code entidade} é a entidade consultada.
+     */
+    public <T, R> PageResponse<R> paginar(Class<?> entidade, PanacheQuery<T> query, String filtro,
+                                          Map<String, Object> params, int page, int size, String modo,
+                                          Function<List<T>, List<R>> representar) {
+        ModoTotal modoTotal = modo(modo);
+        if (modoTotal == ModoTotal.EXATO) {
+            List<T> itens = query.page(page, size).list();
+            return new PageResponse<>(representar.apply(itens), page, size, query.count());
+        }
+
+        // A chave leva a geração de antes das consultas: uma escrita concorrente a elas muda a geração
+        // e o total calculado aqui fica guardado numa chave que não será mais lida
+        String chave = modoTotal == ModoTotal.NENHUM ? null : chave(entidade, filtro, params);
+        int inicio = page * size;
+        List<T> itens = new ArrayList<>(query.range(inicio, inicio + size).list());
+        boolean hasNext = itens.size() > size;
+        if (hasNext) {
+            itens.remove(size);
+        }
+        List<R> content = representar.apply(itens);
+        if (modoTotal == ModoTotal.NENHUM) {
+            return PageResponse.semTotal(content, page, size, hasNext);
+        }
+
+        Long guardado = totais.getIfPresent(chave);
+        if (guardado != null) {
+            return PageResponse.comTotal(content, page, size, guardado, true, hasNext);
+        }
+        if (modoTotal == ModoTotal.CACHE) {
+            long total = query.count();
+            totais.put(chave, total);
+            return PageResponse.comTotal(content, page, size, total, true, hasNext);
+        }
+
+        // Estimado: a última página revela o total; antes dela, só um limite inferior
+        if (!hasNext && (!itens.isEmpty() || page == 0)) {
+            long total = inicio + itens.size();
+            totais.put(chave, total);
+            return PageResponse.comTotal(content, page, size, total, true, false);
+        }
+        if (itens.isEmpty()) {
+            return PageResponse.semTotal(content, page, size, false);
+        }
+        return PageResponse.comTotal(content, page, size, inicio + itens.size() + 1, false, true);
+    }
+
+    /** Descarta os totais da entidade agora e de novo quando a transação corrente terminar. */
+    public void invalidar(Class<?> entidade) {
+        AtomicLong geracao = geracao(entidade);
+        geracao.incrementAndGet();
+        // Um COUNT concorrente ainda não vê a escrita antes do commit
+        AposTransacao.registrar(txRegistry, status -> geracao.incrementAndGet());
+    }
+
+    private ModoTotal modo(String modo) {
+        String valor = modo == null || modo.isBlank() ? modoPadrao : modo;
+        try {
+            return ModoTotal.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Parâmetro total inválido: use exato, cache, estimado ou nenhum\"}")
+                    .build());
+        }
+    }
+
+    private AtomicLong geracao(Class<?> entidade) {
+        return geracoes.computeIfAbsent(entidade, e -> new AtomicLong());
+    }
+
+    private String chave(Class<?> entidade, String filtro, Map<String, Object> params) {
+        return entidade.getSimpleName() + "#" + geracao(entidade).get() + "|" + filtro + "|" + new TreeMap<>(params);
+    }
+
+    /** Listener JPA das entidades paginadas: qualquer inserção, alteração ou remoção invalida os totais. */
+    public static class Invalidador {
+
+        // Instanciado pelo Hibernate, fora do CDI
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        void alterada(Object entidade) {
+            Arc.container().instance(ContagemCache.class).get().invalidar(Hibernate.getClass(entidade));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.acme;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+
+/**
+ * Cota de requisições de um cliente numa rota, compartilhada entre as
+ * instâncias da aplicação. Cada instância reserva parte da cota de uma vez
+ * (concessão) e a consome localmente.
+ */
+@Entity
+@Table(name = "cota_limite")
+public class CotaLimite extends PanacheEntityBase {
+
+    // Cliente e modelo de rota, separados por "|"
+    @Id
+    @Column(length = 512)
+    public String chave;
+
+    // Número da janela de tempo (epoch / duração da janela)
+    @Column(nullable = false)
+    public long janela;
+
+    // Requisições já concedidas às instâncias nesta janela
+    @Column(nullable = false)
+    public int concedido;
+}
@@ -0,0 +1,22 @@
+package org.acme;
+
+import java.util.List;
+
+public class CursorPageResponse<T> {
+    public List<T> content;
+    public int pageSize;
+    // Enviar como ?cursor= para obter a próxima página; null na última
+    public String nextCursor;
+
+    public CursorPageResponse(List<T> content, int pageSize, String nextCursor) {
+        this.content = content;
+        this.pageSize = pageSize;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<T> getContent() { return content; }
+    public int getPageSize() { return pageSize; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasNext() { return nextCursor != null; }
+}
@@ -0,0 +1,424 @@
+package org.acme;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.jboss.logging.Logger;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Diário de compras em arquivo mapeado em memória, com gravação tardia no H2.
+ *
+ * No modo de alta vazão ({@code festival.journal.enabled=true}) a compra
+ * confirmada é anexada ao diário, com checksum, e respondida na hora; um
+ * gravador em segundo plano insere os ingressos na tabela em lotes JDBC.
+ * Na inicialização, os registros ainda não gravados são reaplicados, de modo
+ * que nenhuma compra confirmada ao cliente se perde.
+ *
+ * Formato do arquivo: cabeçalho com a geração e a posição do primeiro registro
+ * não gravado, seguido de registros {@code [tamanho][geração][situação][dados][crc32]}.
+ * A geração muda cada vez que o arquivo é reaproveitado do início, o que
+ * invalida registros antigos que sobraram mais adiante. A situação fica fora
+ * do checksum: é anexada como pendente e marcada como confirmada ou
+ * descartada quando a transação da compra termina; só as confirmadas são
+ * reaplicadas.
+ */
+@ApplicationScoped
+public class DiarioCompras {
+
+    private static final Logger LOG = Logger.getLogger(DiarioCompras.class);
+
+    private static final int CABECALHO = 16;
+    // tamanho + geração + situação + crc
+    private static final int OVERHEAD_REGISTRO = 4 + 4 + 1 + 8;
+
+    static final byte PENDENTE = 0;
+    static final byte CONFIRMADO = 1;
+    static final byte DESCARTADO = 2;
+
+    private static final String INSERT_INGRESSO =
+            "insert into ingresso (id, nome_comprador, email_comprador, data_compra, quantidade, preco_total, status, expira_em, evento_id, versao) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    @ConfigProperty(name = "festival.journal.enabled", defaultValue = "false")
+    boolean ativo;
+
+    @ConfigProperty(name = "festival.journal.arquivo", defaultValue = "data/compras.journal")
+    String arquivo;
+
+    @ConfigProperty(name = "festival.journal.tamanho", defaultValue = "67108864")
+    int tamanhoArquivo;
+
+    @ConfigProperty(name = "festival.journal.lote", defaultValue = "500")
+    int tamanhoLote;
+
+    @ConfigProperty(name = "festival.journal.sincrono", defaultValue = "false")
+    boolean sincrono;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    TransactionSynchronizationRegistry txRegistry;
+
+    @Inject
+    CapacidadeLedger capacidadeLedger;
+
+    @Inject
+    ContagemCache contagemCache;
+
+    private FileChannel canal;
+    private MappedByteBuffer buffer;
+    private int geracao;
+    private int posicaoEscrita;
+    // Posição do primeiro registro ainda não gravado no banco, inclusive os lotes em gravação
+    private int checkpoint;
+    private final ConcurrentLinkedQueue<Registro> naoGravados = new ConcurrentLinkedQueue<>();
+
+    static final class Registro {
+        final long id;
+        final String nomeComprador;
+        final String emailComprador;
+        final LocalDateTime dataCompra;
+        final int quantidade;
+        final double precoTotal;
+        final String status;
+        final LocalDateTime expiraEm;
+        final long eventoId;
+        // Posição do registro no arquivo e logo após ele
+        int inicio;
+        int fim;
+        // Definidos quando a transação da compra termina; só registros confirmados vão para o banco
+        volatile boolean concluido;
+        volatile boolean descartado;
+
+        Registro(Ingresso ingresso) {
+            this(ingresso.id, ingresso.nomeComprador, ingresso.emailComprador, ingresso.dataCompra, ingresso.quantidade,
+                    ingresso.precoTotal, ingresso.status.name(), ingresso.expiraEm, ingresso.evento.id);
+        }
+
+        Registro(long id, String nomeComprador, String emailComprador, LocalDateTime dataCompra, int quantidade,
+                 double precoTotal, String status, LocalDateTime expiraEm, long eventoId) {
+            this.id = id;
+            this.nomeComprador = nomeComprador;
+            this.emailComprador = emailComprador;
+            this.dataCompra = dataCompra;
+            this.quantidade = quantidade;
+            this.precoTotal = precoTotal;
+            this.status = status;
+            this.expiraEm = expiraEm;
+            this.eventoId = eventoId;
+        }
+
+        byte[] serializar() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(id);
+            out.writeUTF(nomeComprador);
+            out.writeUTF(emailComprador);
+            out.writeUTF(dataCompra.toString());
+            out.writeInt(quantidade);
+            out.writeDouble(precoTotal);
+            out.writeUTF(status);
+            out.writeUTF(expiraEm != null ? expiraEm.toString() : "");
+            out.writeLong(eventoId);
+            return bytes.toByteArray();
+        }
+
+        static Registro ler(byte[] dados) throws IOException {
+            DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(dados));
+            long id = in.readLong();
+            String nome = in.readUTF();
+            String email = in.readUTF();
+            LocalDateTime dataCompra = LocalDateTime.parse(in.readUTF());
+            int quantidade = in.readInt();
+            double precoTotal = in.readDouble();
+            String status = in.readUTF();
+            String expira = in.readUTF();
+            long eventoId = in.readLong();
+            return new Registro(id, nome, email, dataCompra, quantidade, precoTotal, status,
+                    expira.isEmpty() ? null : LocalDateTime.parse(expira), eventoId);
+        }
+    }
+
+    // Roda antes da reconciliação do ledger, que precisa ver as compras reaplicadas
+    void onStart(@Observes @Priority(1000) StartupEvent ev) throws IOException {
+        if (!ativo) {
+            return;
+        }
+        Path caminho = Path.of(arquivo);
+        if (caminho.getParent() != null) {
+            Files.createDirectories(caminho.getParent());
+        }
+        canal = FileChannel.open(caminho, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoArquivo);
+        geracao = buffer.getInt(0);
+        checkpoint = Math.max(CABECALHO, buffer.getInt(4));
+
+        List<Registro> pendentes = lerRegistros(checkpoint);
+        posicaoEscrita = pendentes.isEmpty() ? checkpoint : pendentes.get(pendentes.size() - 1).fim;
+        if (!pendentes.isEmpty()) {
+            LOG.infof("Reaplicando %d compras do diário", pendentes.stream().filter(r -> !r.descartado).count());
+            try {
+                gravarNoBanco(pendentes, true);
+            } catch (SQLException e) {
+                // O checkpoint não avança e o diário fica desligado nesta execução, para que novos
+                // registros não passem à frente dos que faltam reaplicar na próxima inicialização
+                LOG.error("Erro ao reaplicar compras do diário; compras seguem direto para o banco", e);
+                ativo = false;
+                return;
+            }
+        }
+        marcarCheckpoint(posicaoEscrita);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) throws IOException {
+        if (canal != null) {
+            gravarPendentes();
+            buffer.force();
+            canal.close();
+        }
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    /**
+     * Atribui um id ao ingresso (da mesma sequência usada pelo Hibernate) e o
+     * anexa ao diário. Retorna false se o diário estiver cheio; nesse caso o
+     * ingresso volta sem id e deve ser persistido pelo caminho normal.
+     */
+    public boolean registrar(Ingresso ingresso) {
+        SharedSessionContractImplementor sessao = em.unwrap(SharedSessionContractImplementor.class);
+        SessionFactoryImplementor fabrica = sessao.getFactory();
+        BeforeExecutionGenerator gerador = (BeforeExecutionGenerator) fabrica.getMappingMetamodel()
+                .getEntityDescriptor(Ingresso.class).getGenerator();
+        ingresso.id = (Long) gerador.generate(sessao, ingresso, null, EventType.INSERT);
+
+        Registro registro = new Registro(ingresso);
+        try {
+            if (!anexar(registro)) {
+                ingresso.id = null;
+                return false;
+            }
+        } catch (IOException e) {
+            ingresso.id = null;
+            return false;
+        }
+
+        // Os lugares continuam pendentes no ledger até o ingresso chegar ao banco
+        capacidadeLedger.reterAteGravar(registro.eventoId, registro.quantidade);
+        if (!AposTransacao.registrar(txRegistry, status -> concluir(registro, status == Status.STATUS_COMMITTED))) {
+            concluir(registro, true);
+        }
+        return true;
+    }
+
+    @Scheduled(every = "${festival.journal.intervalo:100ms}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void gravarPendentes() {
+        if (!ativo) {
+            return;
+        }
+        while (!naoGravados.isEmpty()) {
+            List<Registro> lote = new ArrayList<>(tamanhoLote);
+            Registro registro;
+            // Para no primeiro registro cuja transação ainda não terminou, preservando a ordem do arquivo
+            while (lote.size() < tamanhoLote && (registro = naoGravados.peek()) != null && registro.concluido) {
+                lote.add(registro);
+                naoGravados.poll();
+            }
+            if (lote.isEmpty()) {
+                return;
+            }
+            try {
+                gravarNoBanco(lote, false);
+            } catch (SQLException e) {
+                // Mantém os registros no diário; o checkpoint não avança e a próxima rodada tenta de novo
+                LOG.errorf(e, "Erro ao gravar %d compras do diário", lote.size());
+                List<Registro> restantes = new ArrayList<>(lote);
+                restantes.addAll(naoGravados);
+                naoGravados.clear();
+                naoGravados.addAll(restantes);
+                return;
+            }
+            marcarCheckpoint(lote.get(lote.size() - 1).fim);
+        }
+    }
+
+    private synchronized boolean anexar(Registro registro) throws IOException {
+        byte[] dados = registro.serializar();
+        int tamanho = OVERHEAD_REGISTRO + dados.length;
+        if (posicaoEscrita + tamanho > tamanhoArquivo) {
+            // Só recomeça do início quando tudo já foi gravado no banco: registros retirados da fila
+            // para um lote em gravação ainda estão antes do checkpoint
+            if (checkpoint != posicaoEscrita) {
+                return false;
+            }
+            geracao++;
+            posicaoEscrita = CABECALHO;
+            buffer.putInt(0, geracao);
+            checkpoint = CABECALHO;
+            buffer.putInt(4, CABECALHO);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(geracao);
+        crc.update(dados);
+        registro.inicio = posicaoEscrita;
+        buffer.position(posicaoEscrita);
+        buffer.putInt(dados.length);
+        buffer.putInt(geracao);
+        buffer.put(PENDENTE);
+        buffer.put(dados);
+        buffer.putLong(crc.getValue());
+        posicaoEscrita = buffer.position();
+        if (sincrono) {
+            buffer.force();
+        }
+
+        registro.fim = posicaoEscrita;
+        naoGravados.add(registro);
+        return true;
+    }
+
+    // Marca a situação no arquivo antes de liberar o registro para o gravador, que só então pode avançar o checkpoint
+    private synchronized void concluir(Registro registro, boolean confirmado) {
+        buffer.put(registro.inicio + 8, confirmado ? CONFIRMADO : DESCARTADO);
+        if (sincrono) {
+            buffer.force(registro.inicio + 8, 1);
+        }
+        registro.descartado = !confirmado;
+        registro.concluido = true;
+    }
+
+    private synchronized void marcarCheckpoint(int posicao) {
+        checkpoint = posicao;
+        buffer.putInt(4, posicao);
+    }
+
+    // Lê os registros válidos a partir da posição; para no primeiro registro incompleto, corrompido ou de outra geração.
+    // Os que não foram marcados como confirmados voltam descartados: a compra não chegou a ser confirmada ao cliente
+    private List<Registro> lerRegistros(int posicao) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        while (posicao + OVERHEAD_REGISTRO <= tamanhoArquivo) {
+            int tamanho = buffer.getInt(posicao);
+            int geracaoRegistro = buffer.getInt(posicao + 4);
+            if (tamanho <= 0 || geracaoRegistro != geracao || posicao + OVERHEAD_REGISTRO + tamanho > tamanhoArquivo) {
+                break;
+            }
+            byte situacao = buffer.get(posicao + 8);
+            byte[] dados = new byte[tamanho];
+            buffer.get(posicao + 9, dados);
+            CRC32 crc = new CRC32();
+            crc.update(geracaoRegistro);
+            crc.update(dados);
+            if (buffer.getLong(posicao + 9 + tamanho) != crc.getValue()) {
+                break;
+            }
+            Registro registro = Registro.ler(dados);
+            registro.inicio = posicao;
+            registro.descartado = situacao != CONFIRMADO;
+            registro.concluido = true;
+            posicao += OVERHEAD_REGISTRO + tamanho;
+            registro.fim = posicao;
+            registros.add(registro);
+        }
+        return registros;
+    }
+
+    private void gravarNoBanco(List<Registro> registros, boolean reaplicando) throws SQLException {
+        // Inclui os descartados: a retenção no ledger é desfeita de qualquer forma. Na reaplicação não há retenção
+        Map<Long, Integer> retidos = new HashMap<>();
+        registros.forEach(r -> retidos.merge(r.eventoId, r.quantidade, Integer::sum));
+        Map<Long, CapacidadeLedger.Saldo> gravando = reaplicando ? Map.of() : capacidadeLedger.gravando(retidos.keySet());
+        boolean gravados = false;
+        try (Connection conexao = dataSource.getConnection()) {
+            conexao.setAutoCommit(false);
+            Set<Long> existentes = reaplicando ? idsExistentes(conexao, registros) : Set.of();
+            try (PreparedStatement insert = conexao.prepareStatement(INSERT_INGRESSO)) {
+                for (Registro r : registros) {
+                    if (r.descartado || existentes.contains(r.id)) {
+                        continue;
+                    }
+                    insert.setLong(1, r.id);
+                    insert.setString(2, r.nomeComprador);
+                    insert.setString(3, r.emailComprador);
+                    insert.setTimestamp(4, Timestamp.valueOf(r.dataCompra));
+                    insert.setInt(5, r.quantidade);
+                    insert.setDouble(6, r.precoTotal);
+                    insert.setString(7, r.status);
+                    insert.setTimestamp(8, r.expiraEm != null ? Timestamp.valueOf(r.expiraEm) : null);
+                    insert.setLong(9, r.eventoId);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                conexao.commit();
+                gravados = true;
+                // Inserção via JDBC, fora dos listeners das entidades
+                contagemCache.invalidar(Ingresso.class);
+            } catch (SQLException e) {
+                conexao.rollback();
+                throw e;
+            }
+        } finally {
+            if (!reaplicando) {
+                capacidadeLedger.gravado(gravando, retidos, gravados);
+            }
+        }
+    }
+
+    private Set<Long> idsExistentes(Connection conexao, List<Registro> registros) throws SQLException {
+        Set<Long> existentes = new HashSet<>();
+        try (PreparedStatement select = conexao.prepareStatement("select 1 from ingresso where id = ?")) {
+            for (Registro r : registros) {
+                select.setLong(1, r.id);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        existentes.add(r.id);
+                    }
+                }
+            }
+        }
+        return existentes;
+    }
+}
@@ -0,0 +1,43 @@
+package org.acme;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Conversão entre a versão otimista ({@code @Version}) das entidades e os
+ * cabeçalhos ETag / If-Match.
+ */
+public class EtagUtil {
+
+    public static EntityTag etag(Long versao) {
+        return new EntityTag(String.valueOf(versao != null ? versao : 0));
+    }
+
+    /** true se não houver If-Match ou se ele corresponder à versão atual. */
+    public static boolean confere(String ifMatch, Long versao) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return true;
+        }
+        String atual = etag(versao).getValue();
+        for (String candidato : ifMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.startsWith("\"") && valor.endsWith("\"") && valor.length() >= 2) {
+                valor = valor.substring(1, valor.length() - 1);
+            }
+            if (valor.equals(atual)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static Response precondicaoFalhou(Long versaoAtual) {
+        return Response.status(Response.Status.PRECONDITION_FAILED)
+                .tag(etag(versaoAtual))
+                .entity("{\"message\": \"O recurso foi alterado por outra requisição. Recarregue e tente novamente.\"}")
+                .build();
+    }
+}
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "evento")
+@EntityListeners({ContagemCache.Invalidador.class, IndiceBusca.Sincronizador.class})
 public class Evento extends PanacheEntity {
 
     @NotBlank(message = "O nome do evento é obrigatório")
@@ -40,6 +41,11 @@ public class Evento extends PanacheEntity {
     @Enumerated(EnumType.STRING)
     public StatusEvento status = StatusEvento.DISPONIVEL;
 
+    // Controle de concorrência otimista; exposto aos clientes como ETag
+    @Version
+    @JsonIgnore
+    public Long versao;
+
     @ManyToMany
     @JoinTable(
             name = "evento_artista",
@@ -1,6 +1,11 @@
 package org.acme;
 
 import jakarta.ws.rs.core.UriInfo;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
@@ -32,23 +37,79 @@ public class EventoRepresentation {
     public String status;
 
     @Schema(description = "IDs dos artistas participantes")
-    public java.util.List<Long> artistaIds;
+    public List<Long> artistaIds;
 
     public EventoRepresentation() {
     }
 
+    /** Colunas de {@link #EventoRepresentation(Long, String, String, LocalDate, String, Integer, Double, Evento.StatusEvento)}. */
+    public static final String PROJECAO =
+            "select id, nome, descricao, dataEvento, local, capacidadeMaxima, precoIngresso, status from Evento";
+
+    /** Campos aceitos em {@code ?fields=}. */
+    public static final CamposEsparsos CAMPOS = new CamposEsparsos("Evento",
+            CamposEsparsos.coluna("id"),
+            CamposEsparsos.coluna("nome"),
+            CamposEsparsos.coluna("descricao"),
+            CamposEsparsos.coluna("dataEvento"),
+            CamposEsparsos.coluna("local"),
+            CamposEsparsos.coluna("capacidadeMaxima"),
+            CamposEsparsos.coluna("precoIngresso"),
+            CamposEsparsos.coluna("status"),
+            CamposEsparsos.associacao("artistaIds", EventoRepresentation::artistaIdsPorEvento));
+
+    // Usado pelas consultas de projeção, que criam a representação direto das colunas, sem entidade gerenciada
+    public EventoRepresentation(Long id, String nome, String descricao, LocalDate dataEvento, String local,
+                                Integer capacidadeMaxima, Double precoIngresso, Evento.StatusEvento status) {
+        this.id = id;
+        this.nome = nome;
+        this.descricao = descricao;
+        this.dataEvento = dataEvento.toString();
+        this.local = local;
+        this.capacidadeMaxima = capacidadeMaxima;
+        this.precoIngresso = precoIngresso;
+        this.status = status.toString();
+    }
+
     public static EventoRepresentation from(Evento evento, UriInfo uriInfo) {
-        EventoRepresentation rep = new EventoRepresentation();
-        rep.id = evento.id;
-        rep.nome = evento.nome;
-        rep.descricao = evento.descricao;
-        rep.dataEvento = evento.dataEvento.toString();
-        rep.local = evento.local;
-        rep.capacidadeMaxima = evento.capacidadeMaxima;
-        rep.precoIngresso = evento.precoIngresso;
-        rep.status = evento.status.toString();
+        EventoRepresentation rep = semArtistas(evento);
         rep.artistaIds = evento.artistas.stream().map(artista -> artista.id).collect(Collectors.toList());
-
         return rep;
     }
-}
\ No newline at end of file
+
+    /**
+     * Representações de uma lista de eventos. Os ids dos artistas de todos
+     * vêm de uma única consulta em evento_artista, em vez de carregar a
+     * coleção artistas de cada evento (uma consulta por evento).
+     */
+    public static List<EventoRepresentation> fromList(List<Evento> eventos, UriInfo uriInfo) {
+        return comArtistas(eventos.stream().map(EventoRepresentation::semArtistas).collect(Collectors.toList()));
+    }
+
+    /** Preenche os ids dos artistas de representações já montadas, numa única consulta. */
+    public static List<EventoRepresentation> comArtistas(List<EventoRepresentation> reps) {
+        if (reps.isEmpty()) {
+            return reps;
+        }
+        Map<Long, List<Long>> artistaIds = artistaIdsPorEvento(reps.stream().map(rep -> rep.id).toList());
+        reps.forEach(rep -> rep.artistaIds = artistaIds.get(rep.id));
+        return reps;
+    }
+
+    /** Ids dos artistas de cada evento, numa única consulta; eventos sem artistas ficam com lista vazia. */
+    public static Map<Long, List<Long>> artistaIdsPorEvento(List<Long> ids) {
+        Map<Long, List<Long>> artistaIds = new HashMap<>();
+        ids.forEach(id -> artistaIds.put(id, new ArrayList<>()));
+        Evento.getEntityManager()
+                .createQuery("select e.id, a.id from Evento e join e.artistas a where e.id in :ids order by a.id", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(linha -> artistaIds.get((Long) linha[0]).add((Long) linha[1]));
+        return artistaIds;
+    }
+
+    private static EventoRepresentation semArtistas(Evento evento) {
+        return new EventoRepresentation(evento.id, evento.nome, evento.descricao, evento.dataEvento, evento.local,
+                evento.capacidadeMaxima, evento.precoIngresso, evento.status);
+    }
+}
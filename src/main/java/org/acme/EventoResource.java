@@ -1,5 +1,6 @@
 package org.acme;
 
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
@@ -7,17 +8,21 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import jakarta.persistence.OptimisticLockException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
 import io.quarkus.hibernate.orm.panache.PanacheQuery; // Import já existente
 
 import java.net.URI;
-import java.time.LocalDateTime; // Import necessário para dataCompra
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 
@@ -30,43 +35,70 @@ public class EventoResource {
     @Context
     UriInfo uriInfo;
 
+    @Inject
+    ContagemCache contagemCache;
+
+    @Inject
+    IndiceBusca indiceBusca;
+
+    @Inject
+    CapacidadeLedger capacidadeLedger;
+
+    @Inject
+    CompraIngressoService compraIngressoService;
+
+    @Inject
+    IdempotencyStore idempotencyStore;
+
+    @Inject
+    FilaVirtual filaVirtual;
+
+    // Campos aceitos na paginação por cursor
+    private static final Map<String, PaginacaoCursor.Campo<Evento>> ORDENAVEIS = PaginacaoCursor.campos(
+            new PaginacaoCursor.Campo<>("id", Long.class, e -> e.id),
+            new PaginacaoCursor.Campo<>("nome", String.class, e -> e.nome),
+            new PaginacaoCursor.Campo<>("dataEvento", LocalDate.class, e -> e.dataEvento),
+            new PaginacaoCursor.Campo<>("local", String.class, e -> e.local),
+            new PaginacaoCursor.Campo<>("capacidadeMaxima", Integer.class, e -> e.capacidadeMaxima),
+            new PaginacaoCursor.Campo<>("precoIngresso", Double.class, e -> e.precoIngresso),
+            new PaginacaoCursor.Campo<>("status", Evento.StatusEvento.class, e -> e.status));
+
     // Função auxiliar para converter Evento em EventoRepresentation (sem alterações)
     private EventoRepresentation rep(Evento e) {
         return EventoRepresentation.from(e, uriInfo);
     }
 
-    // Função auxiliar para converter lista de Eventos (sem alterações)
+    // Função auxiliar para converter lista de Eventos (artistas de todos em uma consulta)
     private List<EventoRepresentation> repList(List<Evento> eventos) {
-        return eventos.stream().map(this::rep).collect(Collectors.toList());
+        return EventoRepresentation.fromList(eventos, uriInfo);
     }
 
     @GET
-    @Operation(summary = "Listar todos os eventos com paginação")
+    @Operation(summary = "Listar todos os eventos com paginação", description = "Com o parâmetro cursor (vazio na primeira página) usa paginação por cursor; senão, page/size, com o total no modo do parâmetro total (exato, cache, estimado ou nenhum). fields limita os campos retornados (ex.: fields=id,nome,status)")
     public Response getAll(
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("10") int size,
             @QueryParam("sort") @DefaultValue("nome") String sort,
-            @QueryParam("direction") @DefaultValue("asc") String direction) {
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") String total,
+            @QueryParam("fields") String fields) {
 
         // Validação simples dos parâmetros de ordenação para evitar SQL Injection básico
         String sortField = sort.matches("^[a-zA-Z0-9_]+$") ? sort : "nome";
         String sortDirection = "desc".equalsIgnoreCase(direction) ? "desc" : "asc";
-        String orderBy = "ORDER BY " + sortField + " " + sortDirection;
-
-        PanacheQuery<Evento> query = Evento.find(orderBy);
-        List<Evento> eventos = query.page(page, size).list();
-        long totalCount = query.count();
-
-        List<EventoRepresentation> representations = repList(eventos);
-        PageResponse<EventoRepresentation> response =
-                new PageResponse<>(representations, page, size, totalCount);
+        List<String> campos = EventoRepresentation.CAMPOS.solicitados(fields);
+        if (PaginacaoCursor.solicitada(uriInfo)) {
+            return paginarPorCursor(List.of(), Map.of(), sortField, sortDirection, size, cursor, campos);
+        }
 
-        return Response.ok(response).build();
+        String orderBy = "ORDER BY " + sortField + " " + sortDirection;
+        return paginar(orderBy, Map.of(), "", Map.of(), page, size, total, campos);
     }
 
     @GET
     @Path("/search")
-    @Operation(summary = "Buscar eventos com paginação e filtros avançados")
+    @Operation(summary = "Buscar eventos com paginação e filtros avançados", description = "Aceita os parâmetros cursor, total e fields como a listagem")
     public Response searchEvents(
             @QueryParam("nome") String nome,
             @QueryParam("local") String local,
@@ -74,24 +106,36 @@ public class EventoResource {
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("10") int size,
             @QueryParam("sort") @DefaultValue("nome") String sort,
-            @QueryParam("direction") @DefaultValue("asc") String direction) {
+            @QueryParam("direction") @DefaultValue("asc") String direction,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") String total,
+            @QueryParam("fields") String fields) {
 
         // Validação simples dos parâmetros de ordenação
         String sortField = sort.matches("^[a-zA-Z0-9_]+$") ? sort : "nome";
         String sortDirection = "desc".equalsIgnoreCase(direction) ? "desc" : "asc";
+        List<String> campos = EventoRepresentation.CAMPOS.solicitados(fields);
 
         // Construir query dinâmica
         Map<String, Object> params = new HashMap<>();
         List<String> conditions = new ArrayList<>();
+        // Os filtros de texto vêm do índice invertido, cruzados numa lista só de ids; os totais em cache são guardados pelo texto
+        List<List<IndiceTextual.Resultado>> filtrosTexto = new ArrayList<>();
+        Map<String, Object> textos = new TreeMap<>();
 
         if (nome != null && !nome.trim().isEmpty()) {
-            conditions.add("lower(nome) LIKE lower(:nome)"); // Usar lower para case-insensitive
-            params.put("nome", "%" + nome + "%");
+            filtrosTexto.add(indiceBusca.buscarEventos(nome, "nome"));
+            textos.put("nome", nome);
         }
 
         if (local != null && !local.trim().isEmpty()) {
-            conditions.add("lower(local) LIKE lower(:local)"); // Usar lower para case-insensitive
-            params.put("local", "%" + local + "%");
+            filtrosTexto.add(indiceBusca.buscarEventos(local, "local"));
+            textos.put("local", local);
+        }
+
+        if (!filtrosTexto.isEmpty()) {
+            conditions.add("id in :ids");
+            params.put("ids", indiceBusca.idsEmTodos(filtrosTexto));
         }
 
         if (status != null) {
@@ -99,20 +143,72 @@ public class EventoResource {
             params.put("status", status);
         }
 
+        if (PaginacaoCursor.solicitada(uriInfo)) {
+            return paginarPorCursor(conditions, params, sortField, sortDirection, size, cursor, campos);
+        }
+
         String whereClause = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
         String orderBy = "ORDER BY " + sortField + " " + sortDirection;
         String fullQuery = whereClause + " " + orderBy;
 
         // Consulta paginada
-        PanacheQuery<Evento> panacheQuery = Evento.find(fullQuery, params);
-        List<Evento> eventos = panacheQuery.page(page, size).list();
-        long totalCount = panacheQuery.count(); // Conta total de acordo com os filtros
+        Map<String, Object> chaveContagem = new HashMap<>(params);
+        if (!textos.isEmpty()) {
+            chaveContagem.put("ids", textos);
+        }
+        return paginar(fullQuery, params, whereClause, chaveContagem, page, size, total, campos);
+    }
+
+    @GET
+    @Path("/busca")
+    @Operation(summary = "Busca textual de eventos", description = "Busca em nome, local e descrição, sem diferenciar acentos e maiúsculas; resultados por relevância")
+    public Response buscaTextual(
+            @QueryParam("q") String q,
+            @QueryParam("page") @DefaultValue("0") int page,
+            @QueryParam("size") @DefaultValue("10") int size) {
 
-        List<EventoRepresentation> representations = repList(eventos);
-        PageResponse<EventoRepresentation> response =
-                new PageResponse<>(representations, page, size, totalCount);
+        if (q == null || q.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Parâmetro 'q' é obrigatório\"}")
+                    .build();
+        }
+        if (page < 0 || size < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Use page >= 0 e size > 0\"}")
+                    .build();
+        }
+        List<Long> ids = IndiceBusca.ids(indiceBusca.buscarEventos(q));
+        List<Long> pagina = ids.subList(Math.min(ids.size(), page * size), Math.min(ids.size(), (page + 1) * size));
+        List<Evento> eventos = pagina.isEmpty() ? List.of() : IndiceBusca.naOrdem(pagina, Evento.list("id in ?1", pagina));
+        return Response.ok(new PageResponse<>(repList(eventos), page, size, ids.size())).build();
+    }
+
+    // Página completa, projetada direto na representação, ou só com os campos de ?fields=
+    private Response paginar(String fullQuery, Map<String, Object> params, String whereClause,
+                             Map<String, Object> chaveContagem, int page, int size, String total, List<String> campos) {
+        if (campos != null) {
+            // Só as colunas pedidas entram no SELECT; os artistas só são buscados se pedidos
+            PanacheQuery<Object[]> parcial =
+                    Evento.find(EventoRepresentation.CAMPOS.projecao(campos) + " " + fullQuery, params).project(Object[].class);
+            return Response.ok(contagemCache.paginar(Evento.class, parcial, whereClause, chaveContagem, page, size, total,
+                    linhas -> EventoRepresentation.CAMPOS.montar(campos, linhas))).build();
+        }
+        // Projeção: as linhas viram representações direto, sem entidades no contexto de persistência
+        PanacheQuery<EventoRepresentation> query =
+                Evento.find(EventoRepresentation.PROJECAO + " " + fullQuery, params).project(EventoRepresentation.class);
+        return Response.ok(contagemCache.paginar(
+                Evento.class, query, whereClause, chaveContagem, page, size, total, EventoRepresentation::comArtistas)).build();
+    }
 
-        return Response.ok(response).build();
+    private Response paginarPorCursor(List<String> conditions, Map<String, Object> params,
+                                      String sort, String direction, int size, String cursor, List<String> campos) {
+        PaginacaoCursor.Pagina<Evento> pagina = PaginacaoCursor.buscar(
+                (query, parametros) -> Evento.find(query, parametros), ORDENAVEIS,
+                conditions, params, sort, direction, size, cursor);
+        List<EventoRepresentation> reps = repList(pagina.itens());
+        // A página por cursor precisa das entidades; com fields, só a resposta é reduzida
+        List<?> content = campos == null ? reps : EventoRepresentation.CAMPOS.filtrar(campos, reps);
+        return Response.ok(new CursorPageResponse<>(content, size, pagina.proximoCursor())).build();
     }
 
     @GET
@@ -125,7 +221,7 @@ public class EventoResource {
                            .entity("{\"message\": \"Evento não encontrado\"}")
                            .build();
         }
-        return Response.ok(rep(entity)).build();
+        return Response.ok(rep(entity)).tag(EtagUtil.etag(entity.versao)).build();
     }
 
     @POST
@@ -169,19 +265,25 @@ public class EventoResource {
     @Path("/{id}")
     @Operation(summary = "Atualizar evento")
     @Transactional
-    public Response update(@PathParam("id") long id, @Valid Evento newEvento) {
+    public Response update(@PathParam("id") long id, @HeaderParam("If-Match") String ifMatch, @Valid Evento newEvento) {
         Evento entity = Evento.findById(id);
         if (entity == null) {
              return Response.status(Response.Status.NOT_FOUND)
                             .entity("{\"message\": \"Evento não encontrado\"}")
                             .build();
         }
+        if (!EtagUtil.confere(ifMatch, entity.versao)) {
+            return EtagUtil.precondicaoFalhou(entity.versao);
+        }
 
         // Atualiza os campos simples
         entity.nome = newEvento.nome;
         entity.descricao = newEvento.descricao;
         entity.dataEvento = newEvento.dataEvento;
         entity.local = newEvento.local;
+        if (!newEvento.capacidadeMaxima.equals(entity.capacidadeMaxima)) {
+            capacidadeLedger.ajustarCapacidade(entity.id, newEvento.capacidadeMaxima);
+        }
         entity.capacidadeMaxima = newEvento.capacidadeMaxima;
         entity.precoIngresso = newEvento.precoIngresso;
         if (newEvento.status != null) { // Só atualiza status se for enviado
@@ -210,7 +312,8 @@ public class EventoResource {
         // Se newEvento.artistas for null, a lista de artistas atual não é modificada
 
         entity.persist(); // Garante que as mudanças sejam salvas
-        return Response.ok(rep(entity)).build();
+        Evento.flush(); // Antecipa a verificação de versão para devolver o novo ETag
+        return Response.ok(rep(entity)).tag(EtagUtil.etag(entity.versao)).build();
     }
 
     @DELETE
@@ -238,6 +341,7 @@ public class EventoResource {
                             .entity("{\"message\": \"Falha ao deletar evento.\"}")
                             .build();
         }
+        capacidadeLedger.remover(id);
 
         return Response.noContent().build();
     }
@@ -248,13 +352,16 @@ public class EventoResource {
     @Path("/{id}/artistas")
     @Operation(summary = "Adicionar/Definir artistas do evento", description = "Substitui a lista de artistas do evento pelos IDs fornecidos")
     @Transactional
-    public Response setArtistas(@PathParam("id") long id, List<Long> artistaIds) {
+    public Response setArtistas(@PathParam("id") long id, @HeaderParam("If-Match") String ifMatch, List<Long> artistaIds) {
         Evento evento = Evento.findById(id);
         if (evento == null) {
              return Response.status(Response.Status.NOT_FOUND)
                             .entity("{\"message\": \"Evento não encontrado\"}")
                             .build();
         }
+        if (!EtagUtil.confere(ifMatch, evento.versao)) {
+            return EtagUtil.precondicaoFalhou(evento.versao);
+        }
 
         // Remove associações antigas
         for (Artista artistaAntigo : new ArrayList<>(evento.artistas)) {
@@ -279,7 +386,8 @@ public class EventoResource {
         }
         
         evento.persist();
-        return Response.ok(rep(evento)).build();
+        Evento.flush();
+        return Response.ok(rep(evento)).tag(EtagUtil.etag(evento.versao)).build();
     }
 
     @DELETE
@@ -359,18 +467,13 @@ public class EventoResource {
     @PUT
     @Path("/{id}/status")
     @Operation(summary = "Atualizar status do evento")
-    @Transactional
+    // Conflitos de versão são repetidos numa nova transação, com atraso aleatório para dispersar as tentativas
+    @Retry(maxRetries = 3, delay = 25, jitter = 20, retryOn = OptimisticLockException.class)
     public Response updateStatus(
             @PathParam("id") long id,
+            @HeaderParam("If-Match") String ifMatch,
             @QueryParam("status") Evento.StatusEvento novoStatus) {
 
-        Evento evento = Evento.findById(id);
-        if (evento == null) {
-            return Response.status(Response.Status.NOT_FOUND)
-                           .entity("{\"message\": \"Evento não encontrado\"}")
-                           .build();
-        }
-        
         // Valida se o status enviado é válido
         if (novoStatus == null) {
              return Response.status(Response.Status.BAD_REQUEST)
@@ -378,15 +481,27 @@ public class EventoResource {
                             .build();
         }
 
-        evento.status = novoStatus;
-        evento.persist();
-        return Response.ok(rep(evento)).build();
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Evento evento = Evento.findById(id);
+            if (evento == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                               .entity("{\"message\": \"Evento não encontrado\"}")
+                               .build();
+            }
+            if (!EtagUtil.confere(ifMatch, evento.versao)) {
+                return EtagUtil.precondicaoFalhou(evento.versao);
+            }
+
+            evento.status = novoStatus;
+            evento.persist();
+            Evento.flush();
+            return Response.ok(rep(evento)).tag(EtagUtil.etag(evento.versao)).build();
+        });
     }
 
     @POST
     @Path("/{eventoId}/ingressos")
     @Operation(summary = "Comprar ingresso com idempotência", description = "Compra ingressos para um evento com suporte a idempotência")
-    @Transactional
     public Response comprarIngressoComIdempotencia(
             // CORREÇÃO APLICADA AQUI
             @HeaderParam("x-idempotency-key") String idempotencyKey,
@@ -409,80 +524,22 @@ public class EventoResource {
                     .build();
         }
 
-        // Verificar se já existe resposta para esta chave
-        Response cachedResponse = IdempotencyUtil.getResponseIfExists(idempotencyKey);
-        if (cachedResponse != null) {
-            // Retorna a resposta armazenada (geralmente 201 Created ou um erro anterior)
-            return cachedResponse;
-        }
-
-        // Processar a compra
-        Evento evento = Evento.findById(eventoId);
-        if (evento == null) {
-            // Armazena o erro 404 para futuras requisições com a mesma chave
-            Response errorResponse = Response.status(Response.Status.NOT_FOUND)
-                    .entity("{\"message\": \"Evento não encontrado\"}")
-                    .build();
-            IdempotencyUtil.storeResponse(idempotencyKey, errorResponse);
-            return errorResponse;
+        // Com a fila virtual obrigatória, a compra entra na fila e o cliente acompanha a posição
+        if (filaVirtual.isObrigatoria()) {
+            return filaVirtual.entrarNaFila(eventoId, idempotencyKey, request);
         }
-        
-        // Verifica se o evento está em um status que permite compra
-        if (evento.status == Evento.StatusEvento.ESGOTADO || evento.status == Evento.StatusEvento.CANCELADO) {
-             Response errorResponse = Response.status(Response.Status.BAD_REQUEST)
-                    .entity("{\"message\": \"Não é possível comprar ingressos para um evento " + evento.status.toString() + ".\"}")
-                    .build();
-             IdempotencyUtil.storeResponse(idempotencyKey, errorResponse);
-             return errorResponse;
-        }
-
-        // Verificar capacidade
-        long ingressosVendidos = Ingresso.count("evento.id = ?1 and status != ?2", evento.id, Ingresso.StatusIngresso.CANCELADO); // Não conta cancelados
-        if (ingressosVendidos + request.getQuantidade() > evento.capacidadeMaxima) {
-             Response errorResponse = Response.status(Response.Status.BAD_REQUEST)
-                    .entity("{\"message\": \"Capacidade máxima do evento excedida. Disponíveis: " + (evento.capacidadeMaxima - ingressosVendidos) + "\"}")
-                    .build();
-             IdempotencyUtil.storeResponse(idempotencyKey, errorResponse);
-             return errorResponse;
-        }
-
-        // Criar ingresso
-        Ingresso ingresso = new Ingresso();
-        ingresso.nomeComprador = request.getNomeComprador();
-        ingresso.emailComprador = request.getEmailComprador();
-        ingresso.quantidade = request.getQuantidade();
-        ingresso.evento = evento; // Associação com o evento
-        ingresso.dataCompra = LocalDateTime.now();
-        ingresso.precoTotal = request.getQuantidade() * evento.precoIngresso;
-        ingresso.status = Ingresso.StatusIngresso.RESERVADO; // Status inicial
-
-        ingresso.persist();
-
-        // Atualizar status do evento se atingiu a capacidade
-        long ingressosAtuais = Ingresso.count("evento.id = ?1 and status != ?2", evento.id, Ingresso.StatusIngresso.CANCELADO);
-        if (ingressosAtuais >= evento.capacidadeMaxima) {
-            evento.status = Evento.StatusEvento.ESGOTADO;
-            evento.persist();
-        }
-
-        // Cria a resposta de sucesso
-        IngressoRepresentation responseRepresentation = IngressoRepresentation.from(ingresso, uriInfo);
-        Response finalResponse = Response.status(Response.Status.CREATED)
-                .entity(responseRepresentation)
-                .build();
-
-        // Armazena a resposta de sucesso para idempotência
-        IdempotencyUtil.storeResponse(idempotencyKey, finalResponse);
 
-        return finalResponse;
+        return idempotencyStore.executar(idempotencyKey, CompraIngressoService.impressao(eventoId, request),
+                () -> compraIngressoService.comprar(idempotencyKey, eventoId, request));
     }
 
     // --- Endpoints de busca simples (mantidos) ---
     @GET
     @Path("/busca/nome/{nome}")
-    @Operation(summary = "Buscar eventos por nome", description = "Busca eventos que contenham o nome especificado (case-insensitive)")
+    @Operation(summary = "Buscar eventos por nome", description = "Busca eventos cujo nome contenha os termos, sem diferenciar acentos e maiúsculas, por relevância")
     public Response buscarPorNome(@PathParam("nome") String nome) {
-        List<Evento> eventos = Evento.list("lower(nome) LIKE lower(?1)", "%" + nome + "%");
+        List<Long> ids = indiceBusca.idsEmTodos(List.of(indiceBusca.buscarEventos(nome, "nome")));
+        List<Evento> eventos = ids.isEmpty() ? List.of() : IndiceBusca.naOrdem(ids, Evento.list("id in ?1", ids));
         if (eventos.isEmpty()) return Response.noContent().build();
         return Response.ok(repList(eventos)).build();
     }
@@ -503,9 +560,10 @@ public class EventoResource {
 
     @GET
     @Path("/local/{local}")
-    @Operation(summary = "Buscar eventos por local", description = "Busca eventos no local especificado (case-insensitive)")
+    @Operation(summary = "Buscar eventos por local", description = "Busca eventos cujo local contenha os termos, sem diferenciar acentos e maiúsculas, por relevância")
     public Response buscarPorLocal(@PathParam("local") String local) {
-        List<Evento> eventos = Evento.list("lower(local) LIKE lower(?1)", "%" + local + "%");
+        List<Long> ids = indiceBusca.idsEmTodos(List.of(indiceBusca.buscarEventos(local, "local")));
+        List<Evento> eventos = ids.isEmpty() ? List.of() : IndiceBusca.naOrdem(ids, Evento.list("id in ?1", ids));
         if (eventos.isEmpty()) return Response.noContent().build();
         return Response.ok(repList(eventos)).build();
     }
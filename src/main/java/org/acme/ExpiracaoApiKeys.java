@@ -0,0 +1,64 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Marca como {@link ApiKey.StatusApiKey#EXPIRADA} as chaves ativas cuja
+ * data de expiração já passou.
+ *
+ * Cada lote é travado, atualizado num único UPDATE e então removido do
+ * {@link ApiKeyCache}. A trava serializa a varredura com revogações
+ * concorrentes da mesma chave.
+ */
+@ApplicationScoped
+public class ExpiracaoApiKeys {
+
+    @ConfigProperty(name = "festival.api-key.expiracao.lote", defaultValue = "500")
+    int tamanhoLote;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    ApiKeyCache apiKeyCache;
+
+    @Scheduled(every = "${festival.api-key.expiracao.intervalo:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void expirar() {
+        int expiradas;
+        do {
+            expiradas = QuarkusTransaction.requiringNew().call(this::expirarLote);
+        } while (expiradas == tamanhoLote);
+    }
+
+    private int expirarLote() {
+        List<Object[]> vencidas = em.createQuery(
+                        "select k.id, k.chave from ApiKey k where k.status = :ativa and k.dataExpiracao < :agora",
+                        Object[].class)
+                .setParameter("ativa", ApiKey.StatusApiKey.ATIVA)
+                .setParameter("agora", LocalDateTime.now())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(tamanhoLote)
+                .getResultList();
+        if (vencidas.isEmpty()) {
+            return 0;
+        }
+
+        em.createQuery("update ApiKey k set k.status = :expirada where k.id in :ids")
+                .setParameter("expirada", ApiKey.StatusApiKey.EXPIRADA)
+                .setParameter("ids", vencidas.stream().map(linha -> (Long) linha[0]).toList())
+                .executeUpdate();
+        for (Object[] linha : vencidas) {
+            apiKeyCache.revogar((String) linha[1]);
+        }
+        return vencidas.size();
+    }
+}
@@ -0,0 +1,140 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libera reservas ({@link Ingresso.StatusIngresso#RESERVADO}) não pagas
+ * quando vencem.
+ *
+ * Os prazos ficam numa {@link RodaTemporizadora}; a cada tick os ingressos
+ * vencidos são cancelados em lotes, os lugares voltam ao
+ * {@link CapacidadeLedger} e eventos esgotados voltam a ficar disponíveis.
+ */
+@ApplicationScoped
+public class ExpiracaoReservas {
+
+    private static final Logger LOG = Logger.getLogger(ExpiracaoReservas.class);
+
+    @ConfigProperty(name = "festival.reserva.ttl", defaultValue = "15m")
+    Duration ttl;
+
+    @ConfigProperty(name = "festival.reserva.tick", defaultValue = "1s")
+    Duration tick;
+
+    @ConfigProperty(name = "festival.reserva.slots", defaultValue = "512")
+    int slots;
+
+    @ConfigProperty(name = "festival.reserva.lote", defaultValue = "500")
+    int tamanhoLote;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    CapacidadeLedger capacidadeLedger;
+
+    @Inject
+    ContagemCache contagemCache;
+
+    private RodaTemporizadora roda;
+
+    void onStart(@Observes StartupEvent ev) {
+        roda = new RodaTemporizadora(tick.toMillis(), slots, System.currentTimeMillis());
+        // Reagenda as reservas pendentes que já estavam no banco
+        QuarkusTransaction.requiringNew().run(() -> em.createQuery(
+                        "select i.id, i.expiraEm from Ingresso i where i.status = :reservado and i.expiraEm is not null",
+                        Object[].class)
+                .setParameter("reservado", Ingresso.StatusIngresso.RESERVADO)
+                .getResultStream()
+                .forEach(linha -> agendar((Long) linha[0], (LocalDateTime) linha[1])));
+    }
+
+    /** Prazo de uma reserva criada agora. */
+    public LocalDateTime novoPrazo() {
+        return LocalDateTime.now().plus(ttl);
+    }
+
+    public void agendar(Long ingressoId, LocalDateTime expiraEm) {
+        roda.agendar(ingressoId, expiraEm.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Scheduled(every = "${festival.reserva.tick:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void expirar() {
+        if (roda == null) {
+            return;
+        }
+        long[] vencidos = roda.avancar(System.currentTimeMillis());
+        for (int inicio = 0; inicio < vencidos.length; inicio += tamanhoLote) {
+            List<Long> lote = new ArrayList<>();
+            for (int i = inicio; i < Math.min(vencidos.length, inicio + tamanhoLote); i++) {
+                lote.add(vencidos[i]);
+            }
+            try {
+                QuarkusTransaction.requiringNew().run(() -> liberarLote(lote));
+            } catch (Exception e) {
+                // O lote volta para a roda e é tentado de novo no próximo tick
+                LOG.errorf(e, "Erro ao expirar %d reservas; o lote volta para a roda", lote.size());
+                long proximo = System.currentTimeMillis() + tick.toMillis();
+                lote.forEach(id -> roda.agendar(id, proximo));
+            }
+        }
+    }
+
+    private void liberarLote(List<Long> ids) {
+        LocalDateTime agora = LocalDateTime.now();
+        // Pagamentos, cancelamentos ou prazos prorrogados desde o agendamento ficam de fora. As linhas
+        // ficam travadas até o commit: um pagamento entre a leitura e o update não pode ter os lugares devolvidos
+        List<Object[]> vencidos = em.createQuery(
+                        "select i.id, i.evento.id, i.quantidade from Ingresso i " +
+                        "where i.id in :ids and i.status = :reservado and i.expiraEm <= :agora",
+                        Object[].class)
+                .setParameter("ids", ids)
+                .setParameter("reservado", Ingresso.StatusIngresso.RESERVADO)
+                .setParameter("agora", agora)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (vencidos.isEmpty()) {
+            return;
+        }
+
+        List<Long> idsVencidos = new ArrayList<>();
+        Map<Long, Integer> lugaresPorEvento = new HashMap<>();
+        for (Object[] linha : vencidos) {
+            idsVencidos.add((Long) linha[0]);
+            lugaresPorEvento.merge((Long) linha[1], (Integer) linha[2], Integer::sum);
+        }
+
+        em.createQuery("update versioned Ingresso i set i.status = :cancelado where i.id in :ids and i.status = :reservado")
+                .setParameter("cancelado", Ingresso.StatusIngresso.CANCELADO)
+                .setParameter("reservado", Ingresso.StatusIngresso.RESERVADO)
+                .setParameter("ids", idsVencidos)
+                .executeUpdate();
+        em.createQuery("update versioned Evento e set e.status = :disponivel where e.id in :ids and e.status = :esgotado")
+                .setParameter("disponivel", Evento.StatusEvento.DISPONIVEL)
+                .setParameter("esgotado", Evento.StatusEvento.ESGOTADO)
+                .setParameter("ids", lugaresPorEvento.keySet())
+                .executeUpdate();
+
+        // Atualizações em lote não passam pelos listeners das entidades
+        contagemCache.invalidar(Ingresso.class);
+        contagemCache.invalidar(Evento.class);
+        lugaresPorEvento.forEach(capacidadeLedger::liberar);
+    }
+}
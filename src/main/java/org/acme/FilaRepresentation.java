@@ -0,0 +1,42 @@
+package org.acme;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(description = "Situação de uma compra na fila virtual do evento")
+public class FilaRepresentation {
+
+    @Schema(description = "Token para acompanhar a compra na fila")
+    public String token;
+
+    @Schema(description = "ID do evento")
+    public Long eventoId;
+
+    @Schema(description = "Posição atual na fila (0 quando já foi atendida)")
+    public long posicao;
+
+    @Schema(description = "Situação da compra: AGUARDANDO, PROCESSANDO ou CONCLUIDA")
+    public String status;
+
+    @Schema(description = "Status HTTP da compra, quando concluída")
+    public Integer statusHttp;
+
+    @Schema(description = "Resultado da compra, quando concluída")
+    public Object resultado;
+
+    public FilaRepresentation() {
+    }
+
+    public static FilaRepresentation from(FilaVirtual.Entrada entrada, long posicao) {
+        FilaRepresentation rep = new FilaRepresentation();
+        rep.token = entrada.token;
+        rep.eventoId = entrada.eventoId;
+        rep.posicao = posicao;
+        rep.status = entrada.estado.toString();
+        if (entrada.estado == FilaVirtual.EstadoEntrada.CONCLUIDA) {
+            rep.statusHttp = entrada.statusHttp;
+            rep.resultado = entrada.resultado;
+        }
+
+        return rep;
+    }
+}
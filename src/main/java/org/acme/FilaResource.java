@@ -0,0 +1,86 @@
+package org.acme;
+
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Path("/api/v1/eventos/{eventoId}/fila")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Tag(name = "Fila Virtual", description = "Sala de espera para compra de ingressos")
+public class FilaResource {
+
+    @Inject
+    FilaVirtual filaVirtual;
+
+    @POST
+    @Operation(summary = "Entrar na fila de compra", description = "Coloca a compra na fila virtual do evento e retorna a posição")
+    public Response entrar(
+            @HeaderParam("x-idempotency-key") String idempotencyKey,
+            @PathParam("eventoId") Long eventoId,
+            @Valid CreateIngressoRequest request) {
+
+        if (!eventoId.equals(request.getEventoId())) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"O ID do evento na URL (" + eventoId + ") não corresponde ao ID no corpo da requisição (" + request.getEventoId() + ").\"}")
+                    .build();
+        }
+
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Header 'x-idempotency-key' é obrigatório\"}")
+                    .build();
+        }
+
+        return filaVirtual.entrarNaFila(eventoId, idempotencyKey, request);
+    }
+
+    @GET
+    @Path("/{token}")
+    @Operation(summary = "Consultar posição na fila", description = "Retorna a posição atual e, quando concluída, o resultado da compra")
+    public Response consultar(@PathParam("eventoId") Long eventoId, @PathParam("token") String token) {
+        FilaVirtual.Entrada entrada = filaVirtual.buscar(token);
+        if (entrada == null || !entrada.eventoId.equals(eventoId)) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"message\": \"Entrada na fila não encontrada\"}")
+                    .build();
+        }
+        return Response.ok(FilaRepresentation.from(entrada, filaVirtual.posicao(entrada))).build();
+    }
+
+    @GET
+    @Path("/{token}/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Blocking
+    @Operation(summary = "Acompanhar posição na fila (SSE)", description = "Envia a posição a cada segundo até a compra ser concluída")
+    public Multi<FilaRepresentation> acompanhar(@PathParam("eventoId") Long eventoId, @PathParam("token") String token) {
+        FilaVirtual.Entrada entrada = filaVirtual.buscar(token);
+        if (entrada == null || !entrada.eventoId.equals(eventoId)) {
+            throw new NotFoundException("Entrada na fila não encontrada");
+        }
+
+        // Emite até e inclusive o evento de conclusão
+        AtomicBoolean encerrado = new AtomicBoolean();
+        return Multi.createFrom().ticks().every(Duration.ofSeconds(1))
+                .onOverflow().drop()
+                .map(tick -> FilaRepresentation.from(entrada, filaVirtual.posicao(entrada)))
+                .select().first(rep -> {
+                    if (encerrado.get()) {
+                        return false;
+                    }
+                    encerrado.set(entrada.estado == FilaVirtual.EstadoEntrada.CONCLUIDA);
+                    return true;
+                });
+    }
+}
@@ -0,0 +1,208 @@
+package org.acme;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sala de espera para aberturas de venda.
+ *
+ * Cada compra recebe uma senha na fila do seu evento e é drenada por um
+ * conjunto limitado de workers (threads virtuais) numa vazão configurável,
+ * para que o banco receba um fluxo constante em vez de um pico simultâneo.
+ */
+@ApplicationScoped
+public class FilaVirtual {
+
+    private static final Logger LOG = Logger.getLogger(FilaVirtual.class);
+
+    @ConfigProperty(name = "festival.fila.obrigatoria", defaultValue = "false")
+    boolean obrigatoria;
+
+    @ConfigProperty(name = "festival.fila.vazao-por-segundo", defaultValue = "50")
+    int vazaoPorSegundo;
+
+    @ConfigProperty(name = "festival.fila.workers", defaultValue = "8")
+    int maxWorkers;
+
+    @ConfigProperty(name = "festival.fila.capacidade", defaultValue = "100000")
+    int capacidadeFila;
+
+    @ConfigProperty(name = "festival.fila.retencao", defaultValue = "10m")
+    Duration retencao;
+
+    @Inject
+    CompraIngressoService compraIngressoService;
+
+    @Inject
+    IdempotencyStore idempotencyStore;
+
+    private final Map<Long, Fila> filas = new ConcurrentHashMap<>();
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    private ExecutorService workers;
+    private Semaphore vagasWorkers;
+    private long ultimaDrenagem = System.nanoTime();
+    private double creditos;
+
+    public enum EstadoEntrada {
+        AGUARDANDO,
+        PROCESSANDO,
+        CONCLUIDA
+    }
+
+    static final class Fila {
+        final Queue<Entrada> aguardando = new ConcurrentLinkedQueue<>();
+        final AtomicInteger tamanho = new AtomicInteger();
+        // Última senha emitida e última senha chamada; a posição é a diferença entre elas
+        final AtomicLong senhas = new AtomicLong();
+        final AtomicLong chamadas = new AtomicLong();
+    }
+
+    public static class Entrada {
+        public final String token = UUID.randomUUID().toString();
+        public final Long eventoId;
+        public final long senha;
+        final String idempotencyKey;
+        final CreateIngressoRequest request;
+        public volatile EstadoEntrada estado = EstadoEntrada.AGUARDANDO;
+        public volatile int statusHttp;
+        public volatile Object resultado;
+        volatile Instant concluidaEm;
+
+        Entrada(Long eventoId, long senha, String idempotencyKey, CreateIngressoRequest request) {
+            this.eventoId = eventoId;
+            this.senha = senha;
+            this.idempotencyKey = idempotencyKey;
+            this.request = request;
+        }
+
+        void concluir(int statusHttp, Object resultado) {
+            this.statusHttp = statusHttp;
+            this.resultado = resultado;
+            this.concluidaEm = Instant.now();
+            this.estado = EstadoEntrada.CONCLUIDA;
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        workers = Executors.newVirtualThreadPerTaskExecutor();
+        vagasWorkers = new Semaphore(maxWorkers);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        workers.shutdown();
+    }
+
+    public boolean isObrigatoria() {
+        return obrigatoria;
+    }
+
+    /** Coloca a compra na fila do evento e responde 202 com a senha e o link para acompanhar a posição. */
+    public Response entrarNaFila(Long eventoId, String idempotencyKey, CreateIngressoRequest request) {
+        Fila fila = filas.computeIfAbsent(eventoId, id -> new Fila());
+        if (fila.tamanho.incrementAndGet() > capacidadeFila) {
+            fila.tamanho.decrementAndGet();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", 30)
+                    .entity("{\"message\": \"Fila de compras cheia. Tente novamente em instantes.\"}")
+                    .build();
+        }
+
+        Entrada entrada = new Entrada(eventoId, fila.senhas.incrementAndGet(), idempotencyKey, request);
+        entradas.put(entrada.token, entrada);
+        fila.aguardando.add(entrada);
+
+        return Response.accepted(FilaRepresentation.from(entrada, posicao(entrada)))
+                .location(URI.create("/api/v1/eventos/" + eventoId + "/fila/" + entrada.token))
+                .build();
+    }
+
+    public Entrada buscar(String token) {
+        return entradas.get(token);
+    }
+
+    /** Posição atual na fila (1 = próxima a ser atendida); 0 quando já saiu da fila. */
+    public long posicao(Entrada entrada) {
+        if (entrada.estado != EstadoEntrada.AGUARDANDO) {
+            return 0;
+        }
+        Fila fila = filas.get(entrada.eventoId);
+        return fila == null ? 0 : Math.max(1, entrada.senha - fila.chamadas.get());
+    }
+
+    /**
+     * Libera, a cada intervalo, a quantidade de compras correspondente à vazão
+     * configurada, alternando entre os eventos para que nenhuma fila monopolize os workers.
+     */
+    @Scheduled(every = "${festival.fila.intervalo:200ms}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void drenar() {
+        long agora = System.nanoTime();
+        creditos = Math.min(vazaoPorSegundo, creditos + (agora - ultimaDrenagem) * vazaoPorSegundo / 1_000_000_000.0);
+        ultimaDrenagem = agora;
+
+        boolean atendeuAlguma = true;
+        while (creditos >= 1 && atendeuAlguma) {
+            atendeuAlguma = false;
+            for (Fila fila : filas.values()) {
+                if (creditos < 1 || !vagasWorkers.tryAcquire()) {
+                    return;
+                }
+                Entrada entrada = fila.aguardando.poll();
+                if (entrada == null) {
+                    vagasWorkers.release();
+                    continue;
+                }
+                fila.tamanho.decrementAndGet();
+                fila.chamadas.set(entrada.senha);
+                creditos--;
+                atendeuAlguma = true;
+                workers.execute(() -> processar(entrada));
+            }
+        }
+    }
+
+    private void processar(Entrada entrada) {
+        entrada.estado = EstadoEntrada.PROCESSANDO;
+        try {
+            Response response = idempotencyStore.executar(entrada.idempotencyKey,
+                    CompraIngressoService.impressao(entrada.eventoId, entrada.request),
+                    () -> compraIngressoService.comprar(entrada.idempotencyKey, entrada.eventoId, entrada.request));
+            entrada.concluir(response.getStatus(), response.getEntity());
+        } catch (Exception e) {
+            LOG.errorf(e, "Erro ao processar compra da fila do evento %d", entrada.eventoId);
+            entrada.concluir(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(),
+                    new GlobalExceptionHandler.ErrorResponse("Erro interno do servidor"));
+        } finally {
+            vagasWorkers.release();
+        }
+    }
+
+    // Descarta entradas concluídas depois do período de retenção
+    @Scheduled(every = "1m")
+    void limpar() {
+        Instant limite = Instant.now().minus(retencao);
+        entradas.values().removeIf(e -> e.concluidaEm != null && e.concluidaEm.isBefore(limite));
+    }
+}
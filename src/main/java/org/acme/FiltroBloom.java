@@ -0,0 +1,115 @@
+package org.acme;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom com contadores de 4 bits, que aceita remoções.
+ *
+ * Responde "talvez contenha" ou "certamente não contém". Cada elemento
+ * incrementa {@code k} contadores; remover decrementa os mesmos. Contadores
+ * que chegam a 15 ficam saturados e não são mais decrementados, o que só
+ * pode gerar falsos positivos, nunca falsos negativos. Remover um elemento
+ * que não foi adicionado corrompe o filtro.
+ */
+public class FiltroBloom {
+
+    private static final int BITS_POR_CONTADOR = 4;
+    private static final int CONTADORES_POR_LONG = 64 / BITS_POR_CONTADOR;
+    private static final long MAXIMO = 15;
+
+    private final AtomicLongArray palavras;
+    private final int numContadores;
+    private final int numHashes;
+    private final AtomicLong elementos = new AtomicLong();
+
+    /** Dimensiona o filtro para {@code capacidade} elementos com a taxa de falsos positivos desejada. */
+    public FiltroBloom(long capacidade, double taxaFalsoPositivo) {
+        double m = -capacidade * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2));
+        this.numContadores = (int) Math.max(CONTADORES_POR_LONG, Math.ceil(m));
+        this.numHashes = (int) Math.max(1, Math.round(numContadores / (double) capacidade * Math.log(2)));
+        this.palavras = new AtomicLongArray((numContadores + CONTADORES_POR_LONG - 1) / CONTADORES_POR_LONG);
+    }
+
+    public void adicionar(String valor) {
+        long h = hash(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            alterar(Math.floorMod(h1 + i * h2, numContadores), 1);
+        }
+        elementos.incrementAndGet();
+    }
+
+    public void remover(String valor) {
+        long h = hash(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            alterar(Math.floorMod(h1 + i * h2, numContadores), -1);
+        }
+        elementos.decrementAndGet();
+    }
+
+    public boolean talvezContenha(String valor) {
+        long h = hash(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            if (contador(Math.floorMod(h1 + i * h2, numContadores)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Taxa de falsos positivos esperada para o número atual de elementos. */
+    public double taxaFalsoPositivoEstimada() {
+        double n = Math.max(0, elementos.get());
+        return Math.pow(1 - Math.exp(-numHashes * n / numContadores), numHashes);
+    }
+
+    public long elementos() {
+        return elementos.get();
+    }
+
+    public long bytes() {
+        return (long) palavras.length() * Long.BYTES;
+    }
+
+    private long contador(int indice) {
+        int deslocamento = (indice % CONTADORES_POR_LONG) * BITS_POR_CONTADOR;
+        return (palavras.get(indice / CONTADORES_POR_LONG) >>> deslocamento) & MAXIMO;
+    }
+
+    private void alterar(int indice, int delta) {
+        int posicao = indice / CONTADORES_POR_LONG;
+        int deslocamento = (indice % CONTADORES_POR_LONG) * BITS_POR_CONTADOR;
+        while (true) {
+            long palavra = palavras.get(posicao);
+            long atual = (palavra >>> deslocamento) & MAXIMO;
+            if (atual == MAXIMO || (delta < 0 && atual == 0)) {
+                return;
+            }
+            long nova = palavra + ((long) delta << deslocamento);
+            if (palavras.compareAndSet(posicao, palavra, nova)) {
+                return;
+            }
+        }
+    }
+
+    // FNV-1a de 64 bits sobre os caracteres, seguido do finalizador do MurmurHash3
+    private static long hash(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
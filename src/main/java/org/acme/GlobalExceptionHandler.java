@@ -1,5 +1,6 @@
 package org.acme;
 
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.ws.rs.WebApplicationException;
@@ -22,6 +23,13 @@ public class GlobalExceptionHandler implements ExceptionMapper<Exception> {
             return handleConstraintViolation((ConstraintViolationException) exception);
         }
 
+        // Retentativas esgotadas em escritas concorrentes no mesmo registro
+        if (conflitoDeVersao(exception)) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new ErrorResponse("Conflito de atualização concorrente. Tente novamente."))
+                    .build();
+        }
+
         // Log do erro
         System.err.println("Erro não tratado: " + exception.getMessage());
         exception.printStackTrace();
@@ -31,6 +39,15 @@ public class GlobalExceptionHandler implements ExceptionMapper<Exception> {
                 .build();
     }
 
+    private boolean conflitoDeVersao(Throwable exception) {
+        for (Throwable causa = exception; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockException || causa instanceof org.hibernate.StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private Response handleConstraintViolation(ConstraintViolationException exception) {
         Set<ConstraintViolation<?>> violations = exception.getConstraintViolations();
         String message = violations.stream()
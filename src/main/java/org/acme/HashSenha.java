@@ -0,0 +1,172 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hash e verificação de senhas com BCrypt num pool de threads próprio.
+ *
+ * Cada operação gasta dezenas de milissegundos de CPU; limitando as threads
+ * do pool, um pico de logins ou cadastros não tira CPU das demais rotas. A
+ * fila do pool também é limitada: quando ela enche, a requisição recebe 503
+ * na hora em vez de esperar atrás de centenas de outras.
+ *
+ * Hashes gerados com custo menor que {@code festival.senha.custo} são
+ * refeitos em segundo plano depois de um login bem-sucedido.
+ */
+@ApplicationScoped
+public class HashSenha {
+
+    private static final Logger LOG = Logger.getLogger(HashSenha.class);
+
+    @ConfigProperty(name = "festival.senha.custo", defaultValue = "10")
+    int custo;
+
+    @ConfigProperty(name = "festival.senha.threads", defaultValue = "2")
+    int threads;
+
+    @ConfigProperty(name = "festival.senha.fila", defaultValue = "64")
+    int capacidadeFila;
+
+    @ConfigProperty(name = "festival.senha.espera", defaultValue = "5s")
+    Duration espera;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ThreadPoolExecutor pool;
+    private Counter recusadas;
+
+    @PostConstruct
+    void iniciar() {
+        AtomicInteger contador = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                tarefa -> {
+                    Thread thread = new Thread(tarefa, "hash-senha-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("senha.hash.fila", pool, p -> p.getQueue().size())
+                .description("Operações de hash de senha aguardando no pool")
+                .register(registry);
+        recusadas = Counter.builder("senha.hash.recusadas")
+                .description("Operações de hash de senha recusadas com o pool saturado")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        pool.shutdown();
+    }
+
+    /** Gera o hash da senha com o custo configurado. */
+    public String gerarHash(String senha) {
+        return executar(() -> BCrypt.hashpw(senha, BCrypt.gensalt(custo)));
+    }
+
+    /** Confere a senha contra o hash; um hash ausente ou malformado nunca confere. */
+    public boolean verificar(String senha, String hash) {
+        if (senha == null || hash == null) {
+            return false;
+        }
+        return executar(() -> {
+            try {
+                return BCrypt.checkpw(senha, hash);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Se o hash do usuário usa custo menor que o configurado, refaz o hash em
+     * segundo plano e grava, desde que o usuário não tenha trocado de senha
+     * nesse meio tempo. Com o pool cheio a atualização fica para o próximo login.
+     */
+    public void atualizarSeNecessario(Usuario usuario, String senha) {
+        String hashAtual = usuario.getSenha();
+        if (custoDe(hashAtual) >= custo) {
+            return;
+        }
+        Long usuarioId = usuario.id;
+        try {
+            pool.execute(() -> {
+                String novoHash = BCrypt.hashpw(senha, BCrypt.gensalt(custo));
+                try {
+                    QuarkusTransaction.requiringNew().run(() ->
+                            Usuario.update("senha = ?1 where id = ?2 and senha = ?3", novoHash, usuarioId, hashAtual));
+                } catch (RuntimeException e) {
+                    LOG.errorf(e, "Erro ao atualizar o hash de senha do usuário %d", usuarioId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            recusadas.increment();
+        }
+    }
+
+    // Formato $2a$NN$...; hashes ilegíveis contam como custo zero
+    private static int custoDe(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private <T> T executar(Callable<T> operacao) {
+        Future<T> futuro;
+        try {
+            futuro = pool.submit(operacao);
+        } catch (RejectedExecutionException e) {
+            recusadas.increment();
+            throw sobrecarregado();
+        }
+        try {
+            return futuro.get(espera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            throw sobrecarregado();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuro.cancel(true);
+            throw sobrecarregado();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ServiceUnavailableException sobrecarregado() {
+        return new ServiceUnavailableException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", 1)
+                .entity("{\"message\": \"Serviço de autenticação sobrecarregado. Tente novamente em instantes.\"}")
+                .build());
+    }
+}
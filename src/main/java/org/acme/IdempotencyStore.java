@@ -0,0 +1,292 @@
+package org.acme;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Respostas já produzidas para cada chave de idempotência.
+ *
+ * Guarda apenas status, cabeçalhos e o corpo já serializado em JSON, nunca o
+ * {@link Response} original com o grafo de objetos da entidade. O cache é
+ * limitado em número de entradas (despejo W-TinyLFU) e em tempo de vida;
+ * acertos, erros e despejos ficam expostos como métricas {@code cache.*} com
+ * a tag {@code cache=idempotencia}.
+ *
+ * Requisições simultâneas com a mesma chave são agrupadas (single-flight): a
+ * primeira executa a operação e as demais aguardam o resultado dela em vez de
+ * repetir o trabalho no banco. A chave fica associada à impressão do corpo da
+ * requisição; reutilizá-la com outro corpo é rejeitado com 422.
+ *
+ * O cache em memória fica na frente da tabela {@link RegistroIdempotencia},
+ * gravada pela própria operação na sua transação ({@link #gravar}). Assim uma
+ * retentativa que chegue depois de um restart ou a outra instância é
+ * respondida a partir do banco, sem passar de novo pela lógica de compra.
+ */
+@ApplicationScoped
+public class IdempotencyStore {
+
+    @ConfigProperty(name = "festival.idempotencia.max-entradas", defaultValue = "100000")
+    long maxEntradas;
+
+    @ConfigProperty(name = "festival.idempotencia.ttl", defaultValue = "24h")
+    Duration ttl;
+
+    @ConfigProperty(name = "festival.idempotencia.espera", defaultValue = "5s")
+    Duration espera;
+
+    @ConfigProperty(name = "festival.idempotencia.lote-limpeza", defaultValue = "1000")
+    int loteLimpeza;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<String, RespostaArmazenada> respostas;
+
+    /** Operações em andamento, por chave */
+    private final Map<String, EmAndamento> emAndamento = new ConcurrentHashMap<>();
+
+    /** Forma compacta de uma resposta: cabeçalhos como pares nome/valor e o corpo em bytes UTF-8. */
+    record RespostaArmazenada(String impressao, int status, String[] cabecalhos, byte[] corpo) {
+    }
+
+    private record EmAndamento(String impressao, CompletableFuture<RespostaArmazenada> resultado) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        respostas = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, respostas, "idempotencia");
+    }
+
+    /**
+     * Executa {@code operacao} uma única vez por chave e devolve a resposta
+     * armazenada nas chamadas seguintes. Se a operação lançar exceção nada é
+     * armazenado e quem estava aguardando tenta de novo.
+     */
+    public Response executar(String key, String impressao, Supplier<Response> operacao) {
+        long limite = System.nanoTime() + espera.toNanos();
+        while (true) {
+            RespostaArmazenada armazenada = respostas.getIfPresent(key);
+            if (armazenada != null) {
+                return armazenada.impressao().equals(impressao) ? reproduzir(armazenada) : chaveReutilizada();
+            }
+
+            EmAndamento novo = new EmAndamento(impressao, new CompletableFuture<>());
+            EmAndamento lider = emAndamento.putIfAbsent(key, novo);
+            if (lider == null) {
+                return liderar(key, novo, operacao);
+            }
+            if (!lider.impressao().equals(impressao)) {
+                return chaveReutilizada();
+            }
+
+            try {
+                return reproduzir(lider.resultado().get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                return Response.status(Response.Status.CONFLICT)
+                        .header("Retry-After", Math.max(1, espera.toSeconds()))
+                        .entity("{\"message\": \"Uma requisição com esta chave de idempotência ainda está em processamento\"}")
+                        .build();
+            } catch (ExecutionException e) {
+                // A operação do líder falhou sem gerar resposta: a próxima volta do laço tenta de novo
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrompido aguardando requisição idempotente", e);
+            }
+        }
+    }
+
+    private Response liderar(String key, EmAndamento andamento, Supplier<Response> operacao) {
+        try {
+            // Outro líder (desta ou de outra instância) pode ter concluído antes desta operação ser registrada
+            RespostaArmazenada armazenada = buscar(key);
+            Response resposta;
+            if (armazenada != null) {
+                resposta = reproduzir(armazenada);
+            } else {
+                try {
+                    resposta = operacao.get();
+                } catch (RuntimeException e) {
+                    // Outra instância gravou a mesma chave primeiro e esta transação falhou na chave primária
+                    armazenada = buscar(key);
+                    if (armazenada == null) {
+                        throw e;
+                    }
+                    resposta = reproduzir(armazenada);
+                }
+                if (armazenada == null) {
+                    armazenada = serializar(andamento.impressao(), resposta);
+                    respostas.put(key, armazenada);
+                }
+            }
+            andamento.resultado().complete(armazenada);
+            return armazenada.impressao().equals(andamento.impressao()) ? resposta : chaveReutilizada();
+        } catch (RuntimeException | Error e) {
+            andamento.resultado().completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(key, andamento);
+        }
+    }
+
+    /**
+     * Grava a resposta de forma durável. Deve ser chamado dentro da transação
+     * da operação, para que a resposta e os efeitos dela sejam confirmados juntos.
+     */
+    public void gravar(String key, String impressao, Response resposta) {
+        RespostaArmazenada armazenada = serializar(impressao, resposta);
+        StringBuilder cabecalhos = new StringBuilder();
+        for (int i = 0; i < armazenada.cabecalhos().length; i += 2) {
+            cabecalhos.append(armazenada.cabecalhos()[i]).append(": ").append(armazenada.cabecalhos()[i + 1]).append('\n');
+        }
+
+        // Um registro vencido que a limpeza ainda não removeu ocuparia a chave primária
+        RegistroIdempotencia.delete("chave = ?1 and expiraEm < ?2", key, LocalDateTime.now());
+
+        RegistroIdempotencia registro = new RegistroIdempotencia();
+        registro.chave = key;
+        registro.impressao = impressao;
+        registro.status = armazenada.status();
+        registro.cabecalhos = cabecalhos.toString();
+        registro.corpo = armazenada.corpo();
+        registro.criadoEm = LocalDateTime.now();
+        registro.expiraEm = registro.criadoEm.plus(ttl);
+        registro.persist();
+    }
+
+    private RespostaArmazenada buscar(String key) {
+        RespostaArmazenada armazenada = respostas.getIfPresent(key);
+        if (armazenada == null) {
+            armazenada = QuarkusTransaction.requiringNew().call(() -> carregar(key));
+            if (armazenada != null) {
+                respostas.put(key, armazenada);
+            }
+        }
+        return armazenada;
+    }
+
+    private static RespostaArmazenada carregar(String key) {
+        RegistroIdempotencia registro = RegistroIdempotencia.findById(key);
+        if (registro == null || registro.expiraEm.isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        List<String> cabecalhos = new ArrayList<>();
+        for (String linha : registro.cabecalhos.split("\n")) {
+            int separador = linha.indexOf(": ");
+            if (separador > 0) {
+                cabecalhos.add(linha.substring(0, separador));
+                cabecalhos.add(linha.substring(separador + 2));
+            }
+        }
+        return new RespostaArmazenada(registro.impressao, registro.status, cabecalhos.toArray(String[]::new), registro.corpo);
+    }
+
+    /** Remove do banco, em lotes, os registros com prazo vencido. */
+    @Scheduled(every = "${festival.idempotencia.limpeza:5m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void limparExpirados() {
+        int removidos;
+        do {
+            removidos = QuarkusTransaction.requiringNew().call(() -> {
+                List<String> chaves = RegistroIdempotencia.getEntityManager()
+                        .createQuery("select r.chave from RegistroIdempotencia r where r.expiraEm < :agora", String.class)
+                        .setParameter("agora", LocalDateTime.now())
+                        .setMaxResults(loteLimpeza)
+                        .getResultList();
+                return chaves.isEmpty() ? 0 : (int) RegistroIdempotencia.delete("chave in ?1", chaves);
+            });
+        } while (removidos == loteLimpeza);
+    }
+
+    private static Response chaveReutilizada() {
+        return Response.status(422)
+                .entity("{\"message\": \"Chave de idempotência já utilizada com outra requisição\"}")
+                .build();
+    }
+
+    /** Resumo SHA-256 dos campos que identificam uma requisição. */
+    public static String impressao(Object... campos) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object campo : campos) {
+                digest.update(String.valueOf(campo).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return Base64.getEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Response reproduzir(RespostaArmazenada armazenada) {
+        Response.ResponseBuilder builder = Response.status(armazenada.status());
+        String[] cabecalhos = armazenada.cabecalhos();
+        for (int i = 0; i < cabecalhos.length; i += 2) {
+            builder.header(cabecalhos[i], cabecalhos[i + 1]);
+        }
+        if (armazenada.corpo() != null) {
+            // RawValue é escrito como JSON literal, também quando embutido em outra representação
+            builder.entity(new RawValue(new String(armazenada.corpo(), StandardCharsets.UTF_8)))
+                    .type(MediaType.APPLICATION_JSON_TYPE);
+        }
+        return builder.build();
+    }
+
+    private RespostaArmazenada serializar(String impressao, Response response) {
+        String[] cabecalhos = response.getStringHeaders().entrySet().stream()
+                .filter(e -> !e.getKey().equalsIgnoreCase("Content-Type"))
+                .flatMap(e -> e.getValue().stream().flatMap(valor -> List.of(e.getKey(), valor).stream()))
+                .toArray(String[]::new);
+
+        Object entidade = response.getEntity();
+        byte[] corpo;
+        if (entidade == null) {
+            corpo = null;
+        } else if (entidade instanceof String texto) {
+            // As mensagens de erro já são montadas como JSON
+            corpo = texto.getBytes(StandardCharsets.UTF_8);
+        } else {
+            try {
+                corpo = objectMapper.writeValueAsBytes(entidade);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Não foi possível serializar a resposta idempotente", e);
+            }
+        }
+        return new RespostaArmazenada(impressao, response.getStatus(), cabecalhos, corpo);
+    }
+}
@@ -0,0 +1,445 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Índices textuais de eventos (nome, descrição, local) e artistas (nome,
+ * gênero, biografia), usados nas buscas por texto no lugar de
+ * {@code LIKE '%termo%'}, que varre a tabela inteira.
+ *
+ * Os índices são montados na inicialização e acompanham cada inserção,
+ * alteração ou remoção pelo {@link Sincronizador}, aplicadas só quando a
+ * transação confirma. A cada {@code festival.busca.remontagem} são
+ * remontados do banco, o que traz as escritas de outras réplicas e as que
+ * não passaram pelo Hibernate.
+ *
+ * Também mantém as sugestões de autocompletar (nomes de eventos, de
+ * artistas e locais), pesadas pelos ingressos vendidos: do evento, dos
+ * eventos do artista ou dos eventos no local. Os textos acompanham as
+ * escritas; os pesos são recontados a cada
+ * {@code festival.sugestoes.popularidade.intervalo}. A remontagem refaz as
+ * sugestões junto com os índices textuais.
+ */
+@ApplicationScoped
+public class IndiceBusca {
+
+    private static final Logger LOG = Logger.getLogger(IndiceBusca.class);
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    TransactionSynchronizationRegistry txRegistry;
+
+    @Inject
+    EntityManager em;
+
+    @ConfigProperty(name = "festival.busca.max-ids", defaultValue = "1000")
+    int maxIds;
+
+    // Trocados inteiros a cada remontagem
+    private volatile IndiceTextual eventos = indiceEventos();
+    private volatile IndiceTextual artistas = indiceArtistas();
+    private volatile Sugestoes sugestoes = new Sugestoes();
+
+    // Trocados inteiros a cada recontagem, alterados só nos métodos synchronized
+    private Map<Long, Long> vendasPorEvento = Map.of();
+    private Map<Long, Long> vendasPorArtista = Map.of();
+
+    // Alterações confirmadas enquanto uma remontagem lê o banco, reaplicadas nos índices novos
+    private final Object alteracoes = new Object();
+    private List<Runnable> duranteRemontagem;
+
+    @PostConstruct
+    void iniciar() {
+        Gauge.builder("busca.indice.termos", this, b -> b.eventos.termos()).tag("indice", "eventos").register(registry);
+        Gauge.builder("busca.indice.termos", this, b -> b.artistas.termos()).tag("indice", "artistas").register(registry);
+        Gauge.builder("busca.indice.documentos", this, b -> b.eventos.documentos()).tag("indice", "eventos").register(registry);
+        Gauge.builder("busca.indice.documentos", this, b -> b.artistas.documentos()).tag("indice", "artistas").register(registry);
+        Gauge.builder("busca.sugestoes", this, b -> b.sugestoes.prefixos.tamanho()).register(registry);
+    }
+
+    private static IndiceTextual indiceEventos() {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        pesos.put("nome", 3);
+        pesos.put("local", 2);
+        pesos.put("descricao", 1);
+        return new IndiceTextual(pesos);
+    }
+
+    private static IndiceTextual indiceArtistas() {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        pesos.put("nome", 3);
+        pesos.put("generoMusical", 2);
+        pesos.put("biografia", 1);
+        return new IndiceTextual(pesos);
+    }
+
+    void montar(@Observes StartupEvent ev) {
+        QuarkusTransaction.requiringNew().run(this::contarVendas);
+        montarIndices();
+    }
+
+    @Scheduled(every = "${festival.busca.remontagem:10m}", delayed = "${festival.busca.remontagem:10m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void remontar() {
+        try {
+            montarIndices();
+        } catch (Exception e) {
+            LOG.errorf(e, "Erro ao remontar os índices de busca");
+        }
+    }
+
+    // Monta índices e sugestões novos a partir do banco e troca os atuais por eles
+    private void montarIndices() {
+        IndiceTextual novosEventos = indiceEventos();
+        IndiceTextual novosArtistas = indiceArtistas();
+        Sugestoes novasSugestoes = new Sugestoes();
+        Map<Long, Long> vendasEventos;
+        Map<Long, Long> vendasArtistas;
+        synchronized (alteracoes) {
+            duranteRemontagem = new ArrayList<>();
+        }
+        synchronized (this) {
+            vendasEventos = vendasPorEvento;
+            vendasArtistas = vendasPorArtista;
+        }
+        try {
+            // As sugestões novas ainda não são vistas por ninguém: pesadas pelas vendas lidas acima, sem trava
+            QuarkusTransaction.requiringNew().run(() -> {
+                Evento.<Evento>streamAll().forEach(e -> {
+                    novosEventos.indexar(e.id, textos(e));
+                    novasSugestoes.colocarEvento(e.id, e.nome, e.local, vendasEventos.getOrDefault(e.id, 0L));
+                });
+                Artista.<Artista>streamAll().forEach(a -> {
+                    novosArtistas.indexar(a.id, textos(a));
+                    novasSugestoes.colocarArtista(a.id, a.nome, vendasArtistas.getOrDefault(a.id, 0L));
+                });
+            });
+            synchronized (alteracoes) {
+                eventos = novosEventos;
+                artistas = novosArtistas;
+                trocarSugestoes(novasSugestoes, vendasEventos, vendasArtistas);
+                // A leitura pode ter visto o banco antes ou depois delas; reaplicar não muda o resultado
+                duranteRemontagem.forEach(Runnable::run);
+            }
+        } finally {
+            synchronized (alteracoes) {
+                duranteRemontagem = null;
+            }
+        }
+    }
+
+    @Scheduled(every = "${festival.sugestoes.popularidade.intervalo:5m}", delayed = "${festival.sugestoes.popularidade.intervalo:5m}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void recontarPopularidade() {
+        try {
+            QuarkusTransaction.requiringNew().run(this::contarVendas);
+        } catch (Exception e) {
+            LOG.errorf(e, "Erro ao recontar a popularidade das sugestões");
+        }
+    }
+
+    /** Eventos que casam com a consulta nos campos informados (todos, se nenhum), por relevância. */
+    public List<IndiceTextual.Resultado> buscarEventos(String consulta, String... campos) {
+        return eventos.buscar(consulta, List.of(campos));
+    }
+
+    /** Artistas que casam com a consulta nos campos informados (todos, se nenhum), por relevância. */
+    public List<IndiceTextual.Resultado> buscarArtistas(String consulta, String... campos) {
+        return artistas.buscar(consulta, List.of(campos));
+    }
+
+    /**
+     * Sugestões de autocompletar com uma palavra começando pelo prefixo, das
+     * mais vendidas para as menos; {@code tipo} (evento, artista ou local)
+     * nulo traz todos. Responde só da memória.
+     */
+    public List<IndicePrefixos.Sugestao> sugerir(String prefixo, String tipo, int limite) {
+        return sugestoes.prefixos.sugerir(prefixo, tipo, limite);
+    }
+
+    /**
+     * Ids que casam com todos os filtros de texto, para um {@code id in} na
+     * consulta. A lista vai inteira como parâmetro do SQL, então buscas que
+     * casam com mais de {@code festival.busca.max-ids} registros são
+     * recusadas.
+     */
+    public List<Long> idsEmTodos(List<List<IndiceTextual.Resultado>> filtros) {
+        Set<Long> ids = null;
+        for (List<IndiceTextual.Resultado> resultados : filtros) {
+            if (ids == null) {
+                ids = new LinkedHashSet<>(ids(resultados));
+            } else {
+                ids.retainAll(new HashSet<>(ids(resultados)));
+            }
+        }
+        if (ids == null) {
+            return List.of();
+        }
+        if (ids.size() > maxIds) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Busca muito ampla: mais de " + maxIds + " resultados, refine os termos\"}")
+                    .build());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /** Só os ids, na ordem de relevância. */
+    public static List<Long> ids(Collection<IndiceTextual.Resultado> resultados) {
+        return resultados.stream().map(IndiceTextual.Resultado::id).toList();
+    }
+
+    /** Reordena entidades carregadas por {@code id in} na ordem dos ids. */
+    public static <T extends PanacheEntity> List<T> naOrdem(List<Long> ids, List<T> entidades) {
+        Map<Long, T> porId = new HashMap<>();
+        entidades.forEach(e -> porId.put(e.id, e));
+        return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+    }
+
+    private static Map<String, String> textos(Evento evento) {
+        Map<String, String> textos = new LinkedHashMap<>();
+        textos.put("nome", evento.nome);
+        textos.put("local", evento.local);
+        textos.put("descricao", evento.descricao);
+        return textos;
+    }
+
+    private static Map<String, String> textos(Artista artista) {
+        Map<String, String> textos = new LinkedHashMap<>();
+        textos.put("nome", artista.nome);
+        textos.put("generoMusical", artista.generoMusical);
+        textos.put("biografia", artista.biografia);
+        return textos;
+    }
+
+    void alterado(Object entidade, boolean removido) {
+        Runnable aplicar;
+        if (entidade instanceof Evento evento) {
+            Long id = evento.id;
+            // Os textos são copiados agora; a entidade pode mudar até o commit
+            Map<String, String> textos = textos(evento);
+            aplicar = removido
+                    ? () -> {
+                        eventos.remover(id);
+                        removerEvento(id);
+                    }
+                    : () -> {
+                        eventos.indexar(id, textos);
+                        sugerirEvento(id, textos.get("nome"), textos.get("local"));
+                    };
+        } else if (entidade instanceof Artista artista) {
+            Long id = artista.id;
+            Map<String, String> textos = textos(artista);
+            aplicar = removido
+                    ? () -> {
+                        artistas.remover(id);
+                        removerArtista(id);
+                    }
+                    : () -> {
+                        artistas.indexar(id, textos);
+                        sugerirArtista(id, textos.get("nome"));
+                    };
+        } else {
+            return;
+        }
+
+        boolean registrada = AposTransacao.registrar(txRegistry, status -> {
+            if (status == Status.STATUS_COMMITTED) {
+                aplicar(aplicar);
+            }
+        });
+        if (!registrada) {
+            aplicar(aplicar);
+        }
+    }
+
+    private void aplicar(Runnable alteracao) {
+        synchronized (alteracoes) {
+            alteracao.run();
+            if (duranteRemontagem != null) {
+                duranteRemontagem.add(alteracao);
+            }
+        }
+    }
+
+    private synchronized void sugerirEvento(long id, String nome, String local) {
+        sugestoes.colocarEvento(id, nome, local, vendasPorEvento.getOrDefault(id, 0L));
+    }
+
+    private synchronized void removerEvento(long id) {
+        sugestoes.removerEvento(id, vendasPorEvento.getOrDefault(id, 0L));
+    }
+
+    private synchronized void sugerirArtista(long id, String nome) {
+        sugestoes.colocarArtista(id, nome, vendasPorArtista.getOrDefault(id, 0L));
+    }
+
+    private synchronized void removerArtista(long id) {
+        sugestoes.prefixos.remover("artista:" + id);
+    }
+
+    // As vendas podem ter sido recontadas durante a remontagem; as sugestões novas recebem a diferença
+    private synchronized void trocarSugestoes(Sugestoes novas, Map<Long, Long> vendasEventos, Map<Long, Long> vendasArtistas) {
+        novas.pesar(vendasEventos, vendasArtistas, vendasPorEvento, vendasPorArtista);
+        sugestoes = novas;
+    }
+
+    private void contarVendas() {
+        Map<Long, Long> porEvento = vendas(em.createQuery(
+                "select i.evento.id, sum(i.quantidade) from Ingresso i where i.status <> :cancelado group by i.evento.id",
+                Object[].class));
+        Map<Long, Long> porArtista = vendas(em.createQuery(
+                "select a.id, sum(i.quantidade) from Ingresso i join i.evento e join e.artistas a"
+                        + " where i.status <> :cancelado group by a.id",
+                Object[].class));
+        pesar(porEvento, porArtista);
+    }
+
+    private static Map<Long, Long> vendas(TypedQuery<Object[]> query) {
+        Map<Long, Long> vendas = new HashMap<>();
+        for (Object[] linha : query.setParameter("cancelado", Ingresso.StatusIngresso.CANCELADO).getResultList()) {
+            vendas.put((Long) linha[0], ((Number) linha[1]).longValue());
+        }
+        return vendas;
+    }
+
+    private synchronized void pesar(Map<Long, Long> porEvento, Map<Long, Long> porArtista) {
+        sugestoes.pesar(vendasPorEvento, vendasPorArtista, porEvento, porArtista);
+        vendasPorEvento = porEvento;
+        vendasPorArtista = porArtista;
+    }
+
+    // Locais que diferem só em acentos ou maiúsculas viram uma sugestão só
+    private static String chaveLocal(String local) {
+        return "local:" + String.join(" ", IndiceTextual.termos(local));
+    }
+
+    // Texto exibido (o do último evento que entrou), eventos no local e soma das vendas deles
+    private record Local(String texto, int eventos, long peso) {
+    }
+
+    /** Sugestões de autocompletar e o estado para pesá-las, trocados juntos a cada remontagem. */
+    private static class Sugestoes {
+
+        final IndicePrefixos prefixos = new IndicePrefixos();
+        private final Map<Long, String> localPorEvento = new HashMap<>();
+        // Por chave de local: eventos nele e soma das vendas, para não percorrer o catálogo a cada escrita
+        private final Map<String, Local> locais = new HashMap<>();
+
+        void colocarEvento(long id, String nome, String local, long vendas) {
+            prefixos.colocar("evento:" + id, new IndicePrefixos.Sugestao("evento", id, nome, vendas));
+            String anterior = local == null ? localPorEvento.remove(id) : localPorEvento.put(id, local);
+            if (!Objects.equals(anterior, local)) {
+                sairDoLocal(anterior, vendas);
+                entrarNoLocal(local, vendas);
+            }
+        }
+
+        void removerEvento(long id, long vendas) {
+            prefixos.remover("evento:" + id);
+            sairDoLocal(localPorEvento.remove(id), vendas);
+        }
+
+        void colocarArtista(long id, String nome, long vendas) {
+            prefixos.colocar("artista:" + id, new IndicePrefixos.Sugestao("artista", id, nome, vendas));
+        }
+
+        private void entrarNoLocal(String local, long vendas) {
+            if (local == null) {
+                return;
+            }
+            String chave = chaveLocal(local);
+            Local atual = locais.merge(chave, new Local(local, 1, vendas),
+                    (l, novo) -> new Local(local, l.eventos() + 1, l.peso() + vendas));
+            prefixos.colocar(chave, new IndicePrefixos.Sugestao("local", null, atual.texto(), atual.peso()));
+        }
+
+        private void sairDoLocal(String local, long vendas) {
+            if (local == null) {
+                return;
+            }
+            String chave = chaveLocal(local);
+            Local atual = locais.computeIfPresent(chave,
+                    (c, l) -> l.eventos() == 1 ? null : new Local(l.texto(), l.eventos() - 1, l.peso() - vendas));
+            if (atual == null) {
+                prefixos.remover(chave);
+            } else {
+                prefixos.pesar(chave, atual.peso());
+            }
+        }
+
+        // Troca os pesos das vendas anteriores pelas atuais
+        void pesar(Map<Long, Long> anterioresEvento, Map<Long, Long> anterioresArtista,
+                   Map<Long, Long> porEvento, Map<Long, Long> porArtista) {
+            Set<Long> eventosPesados = new HashSet<>(anterioresEvento.keySet());
+            eventosPesados.addAll(porEvento.keySet());
+            Set<Long> artistasPesados = new HashSet<>(anterioresArtista.keySet());
+            artistasPesados.addAll(porArtista.keySet());
+
+            // Só os eventos com vendas, antes ou agora, mudam de peso; o local recebe a diferença
+            Set<String> locaisPesados = new HashSet<>();
+            for (Long id : eventosPesados) {
+                long vendas = porEvento.getOrDefault(id, 0L);
+                prefixos.pesar("evento:" + id, vendas);
+                String local = localPorEvento.get(id);
+                long diferenca = vendas - anterioresEvento.getOrDefault(id, 0L);
+                if (local != null && diferenca != 0) {
+                    String chave = chaveLocal(local);
+                    locais.computeIfPresent(chave, (c, l) -> new Local(l.texto(), l.eventos(), l.peso() + diferenca));
+                    locaisPesados.add(chave);
+                }
+            }
+            artistasPesados.forEach(id -> prefixos.pesar("artista:" + id, porArtista.getOrDefault(id, 0L)));
+            locaisPesados.forEach(chave -> prefixos.pesar(chave, locais.get(chave).peso()));
+        }
+    }
+
+    /** Listener JPA de {@link Evento} e {@link Artista} que mantém os índices em dia. */
+    public static class Sincronizador {
+
+        // Instanciado pelo Hibernate, fora do CDI
+        @PostPersist
+        @PostUpdate
+        void salvo(Object entidade) {
+            Arc.container().instance(IndiceBusca.class).get().alterado(entidade, false);
+        }
+
+        @PostRemove
+        void removido(Object entidade) {
+            Arc.container().instance(IndiceBusca.class).get().alterado(entidade, true);
+        }
+    }
+}
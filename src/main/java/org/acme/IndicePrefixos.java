@@ -0,0 +1,181 @@
+package org.acme;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de prefixos para autocompletar.
+ *
+ * Cada sugestão entra numa árvore ordenada uma vez por palavra, com o texto
+ * normalizado a partir dela ("Rock in Rio" vira "rock in rio", "in rio" e
+ * "rio"), então o que o usuário digitou casa com o início de qualquer
+ * palavra. Uma consulta percorre só o intervalo de chaves com o prefixo e
+ * guarda as {@code limite} de maior peso.
+ *
+ * Prefixos de até {@value #PREFIXO_CURTO} caracteres casam com boa parte do
+ * índice, então as {@value #TOPO} mais pesadas de cada um ficam guardadas
+ * depois da primeira consulta e só são recalculadas quando uma sugestão
+ * com o prefixo muda.
+ *
+ * Inclusões, alterações e remoções mexem só nas chaves da sugestão, sem
+ * reconstruir o índice.
+ */
+public class IndicePrefixos {
+
+    public record Sugestao(String tipo, Long id, String texto, long peso) {
+    }
+
+    static final int PREFIXO_CURTO = 3;
+    static final int TOPO = 50;
+
+    private static final char SEPARADOR = '\u0000';
+    private static final Comparator<Sugestao> ORDEM = Comparator.comparingLong(Sugestao::peso)
+            .thenComparing(Sugestao::texto, Comparator.reverseOrder());
+
+    // texto normalizado a partir de uma palavra + separador + chave da sugestão -> chave da sugestão
+    private final NavigableMap<String, String> posicoes = new TreeMap<>();
+    private final Map<String, Sugestao> sugestoes = new HashMap<>();
+    // prefixo curto + separador + tipo (vazio para todos) -> as TOPO mais pesadas, da mais para a menos
+    private final Map<String, List<Sugestao>> topos = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Inclui ou substitui a sugestão identificada por {@code chave}. */
+    public void colocar(String chave, Sugestao sugestao) {
+        List<String> novas = posicoes(sugestao.texto(), chave);
+        lock.writeLock().lock();
+        try {
+            Sugestao anterior = sugestoes.put(chave, sugestao);
+            if (anterior != null) {
+                esquecerTopos(anterior);
+            }
+            esquecerTopos(sugestao);
+            if (anterior != null && anterior.texto().equals(sugestao.texto())) {
+                return;
+            }
+            if (anterior != null) {
+                posicoes(anterior.texto(), chave).forEach(posicoes::remove);
+            }
+            novas.forEach(p -> posicoes.put(p, chave));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Troca só o peso; ignora chaves que não estão no índice. */
+    public void pesar(String chave, long peso) {
+        lock.writeLock().lock();
+        try {
+            Sugestao atual = sugestoes.computeIfPresent(chave, (c, s) -> new Sugestao(s.tipo(), s.id(), s.texto(), peso));
+            if (atual != null) {
+                esquecerTopos(atual);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remover(String chave) {
+        lock.writeLock().lock();
+        try {
+            Sugestao anterior = sugestoes.remove(chave);
+            if (anterior != null) {
+                esquecerTopos(anterior);
+                posicoes(anterior.texto(), chave).forEach(posicoes::remove);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Até {@code limite} sugestões cujo texto tenha uma palavra começando
+     * pelo prefixo, da mais para a menos pesada. {@code tipo} nulo não filtra.
+     */
+    public List<Sugestao> sugerir(String prefixo, String tipo, int limite) {
+        String normalizado = String.join(" ", IndiceTextual.termos(prefixo));
+        if (normalizado.isEmpty() || limite < 1) {
+            return List.of();
+        }
+        boolean curto = normalizado.length() <= PREFIXO_CURTO && limite <= TOPO;
+
+        lock.readLock().lock();
+        try {
+            if (!curto) {
+                return varrer(normalizado, tipo, limite);
+            }
+            // Calculado sob a trava de leitura: nenhuma escrita invalida o topo entre a varredura e o put
+            List<Sugestao> topo = topos.computeIfAbsent(normalizado + SEPARADOR + (tipo == null ? "" : tipo),
+                    k -> varrer(normalizado, tipo, TOPO));
+            return topo.subList(0, Math.min(limite, topo.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Percorre as chaves com o prefixo guardando as limite mais pesadas; chamado com a trava de leitura
+    private List<Sugestao> varrer(String normalizado, String tipo, int limite) {
+        PriorityQueue<Sugestao> melhores = new PriorityQueue<>(ORDEM);
+        Set<String> vistas = new HashSet<>();
+        for (String chave : posicoes.subMap(normalizado, true, normalizado + Character.MAX_VALUE, false).values()) {
+            Sugestao sugestao = sugestoes.get(chave);
+            if (!vistas.add(chave) || (tipo != null && !tipo.equals(sugestao.tipo()))) {
+                continue;
+            }
+            melhores.add(sugestao);
+            if (melhores.size() > limite) {
+                melhores.poll();
+            }
+        }
+        List<Sugestao> resultado = new ArrayList<>(melhores);
+        resultado.sort(ORDEM.reversed());
+        return List.copyOf(resultado);
+    }
+
+    // Descarta os topos dos prefixos curtos que casam com a sugestão; chamado com a trava de escrita
+    private void esquecerTopos(Sugestao sugestao) {
+        if (topos.isEmpty()) {
+            return;
+        }
+        for (String sufixo : sufixos(sugestao.texto())) {
+            for (int tamanho = 1; tamanho <= Math.min(PREFIXO_CURTO, sufixo.length()); tamanho++) {
+                String prefixo = sufixo.substring(0, tamanho) + SEPARADOR;
+                topos.remove(prefixo);
+                topos.remove(prefixo + sugestao.tipo());
+            }
+        }
+    }
+
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return sugestoes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<String> posicoes(String texto, String chave) {
+        return sufixos(texto).stream().map(s -> s + SEPARADOR + chave).toList();
+    }
+
+    // Texto normalizado a partir de cada palavra
+    private static List<String> sufixos(String texto) {
+        List<String> termos = IndiceTextual.termos(texto);
+        List<String> sufixos = new ArrayList<>(termos.size());
+        for (int i = 0; i < termos.size(); i++) {
+            sufixos.add(String.join(" ", termos.subList(i, termos.size())));
+        }
+        return sufixos;
+    }
+}
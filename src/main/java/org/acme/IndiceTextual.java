@@ -0,0 +1,191 @@
+package org.acme;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória para busca textual.
+ *
+ * Os textos são quebrados em termos sem acento e em minúsculas ("São
+ * Paulo" vira "sao" e "paulo"), e cada termo aponta para os documentos
+ * que o contêm, com a frequência por campo. Uma busca só percorre os
+ * termos da consulta, então o custo depende do número de resultados e não
+ * do tamanho do catálogo.
+ *
+ * Cada termo da consulta casa como prefixo ("cold" encontra "coldplay") e
+ * todos precisam casar (E lógico). A pontuação soma, por termo, peso do
+ * campo × frequência × IDF, com metade do valor para casamentos só por
+ * prefixo.
+ */
+public class IndiceTextual {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    public record Resultado(long id, double pontuacao) {
+    }
+
+    private final String[] campos;
+    private final int[] pesos;
+
+    // termo -> documento -> frequência do termo em cada campo
+    private final NavigableMap<String, Map<Long, int[]>> postagens = new TreeMap<>();
+    // documento -> termos, para remover ou reindexar
+    private final Map<Long, Set<String>> termosPorDocumento = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Campos indexados e seus pesos na pontuação, na ordem dada. */
+    public IndiceTextual(Map<String, Integer> pesosPorCampo) {
+        this.campos = pesosPorCampo.keySet().toArray(new String[0]);
+        this.pesos = pesosPorCampo.values().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Separa o texto em termos normalizados (sem acentos, minúsculos). */
+    public static List<String> termos(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null || texto.isBlank()) {
+            return termos;
+        }
+        String normalizado = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String termo : SEPARADORES.split(normalizado)) {
+            if (!termo.isEmpty()) {
+                termos.add(termo);
+            }
+        }
+        return termos;
+    }
+
+    /** Indexa o documento com os textos de cada campo, substituindo a versão anterior. */
+    public void indexar(long id, Map<String, String> textos) {
+        Map<String, int[]> frequencias = new HashMap<>();
+        for (int c = 0; c < campos.length; c++) {
+            for (String termo : termos(textos.get(campos[c]))) {
+                frequencias.computeIfAbsent(termo, t -> new int[campos.length])[c]++;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removerSemTrava(id);
+            frequencias.forEach((termo, porCampo) -> postagens.computeIfAbsent(termo, t -> new HashMap<>()).put(id, porCampo));
+            termosPorDocumento.put(id, new HashSet<>(frequencias.keySet()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remover(long id) {
+        lock.writeLock().lock();
+        try {
+            removerSemTrava(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removerSemTrava(long id) {
+        Set<String> termos = termosPorDocumento.remove(id);
+        if (termos == null) {
+            return;
+        }
+        for (String termo : termos) {
+            Map<Long, int[]> documentos = postagens.get(termo);
+            documentos.remove(id);
+            if (documentos.isEmpty()) {
+                postagens.remove(termo);
+            }
+        }
+    }
+
+    /**
+     * Documentos que casam com todos os termos da consulta nos campos
+     * informados (todos, se vazio), do mais para o menos relevante.
+     */
+    public List<Resultado> buscar(String consulta, Collection<String> camposBuscados) {
+        List<String> termosConsulta = termos(consulta);
+        if (termosConsulta.isEmpty()) {
+            return List.of();
+        }
+        int[] pesosBusca = new int[campos.length];
+        for (int c = 0; c < campos.length; c++) {
+            pesosBusca[c] = camposBuscados.isEmpty() || camposBuscados.contains(campos[c]) ? pesos[c] : 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> pontuacoes = null;
+            for (String termoConsulta : new HashSet<>(termosConsulta)) {
+                Map<Long, Double> doTermo = pontuar(termoConsulta, pesosBusca);
+                if (pontuacoes == null) {
+                    pontuacoes = doTermo;
+                } else {
+                    pontuacoes.keySet().retainAll(doTermo.keySet());
+                    pontuacoes.replaceAll((id, pontos) -> pontos + doTermo.get(id));
+                }
+                if (pontuacoes.isEmpty()) {
+                    return List.of();
+                }
+            }
+            List<Resultado> resultados = new ArrayList<>(pontuacoes.size());
+            pontuacoes.forEach((id, pontos) -> resultados.add(new Resultado(id, pontos)));
+            resultados.sort(Comparator.comparingDouble(Resultado::pontuacao).reversed()
+                    .thenComparingLong(Resultado::id));
+            return resultados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Soma as contribuições de todos os termos indexados que começam com o termo da consulta
+    private Map<Long, Double> pontuar(String termoConsulta, int[] pesosBusca) {
+        Map<Long, Double> pontuacoes = new HashMap<>();
+        double totalDocumentos = termosPorDocumento.size();
+        for (Map.Entry<String, Map<Long, int[]>> postagem
+                : postagens.subMap(termoConsulta, true, termoConsulta + Character.MAX_VALUE, false).entrySet()) {
+            Map<Long, int[]> documentos = postagem.getValue();
+            double idf = Math.log(1 + totalDocumentos / documentos.size());
+            double fator = postagem.getKey().equals(termoConsulta) ? idf : idf / 2;
+            documentos.forEach((id, frequencias) -> {
+                int pontos = 0;
+                for (int c = 0; c < frequencias.length; c++) {
+                    pontos += pesosBusca[c] * frequencias[c];
+                }
+                if (pontos > 0) {
+                    pontuacoes.merge(id, pontos * fator, Double::sum);
+                }
+            });
+        }
+        return pontuacoes;
+    }
+
+    public int documentos() {
+        lock.readLock().lock();
+        try {
+            return termosPorDocumento.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termos() {
+        lock.readLock().lock();
+        try {
+            return postagens.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
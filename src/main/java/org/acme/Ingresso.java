@@ -4,9 +4,11 @@ import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "ingresso")
+@EntityListeners(ContagemCache.Invalidador.class)
 public class Ingresso extends PanacheEntity {
 
     @NotBlank(message = "O nome do comprador é obrigatório")
@@ -29,9 +31,18 @@ public class Ingresso extends PanacheEntity {
     @Column(name = "preco_total")
     public Double precoTotal;
 
+    // Prazo para pagamento de uma reserva; depois dele a reserva é cancelada e os lugares liberados
+    @Column(name = "expira_em")
+    public LocalDateTime expiraEm;
+
     @Enumerated(EnumType.STRING)
     public StatusIngresso status = StatusIngresso.RESERVADO;
 
+    // Controle de concorrência otimista; exposto aos clientes como ETag
+    @Version
+    @JsonIgnore
+    public Long versao;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "evento_id")
     public Evento evento;
@@ -63,6 +74,9 @@ public class Ingresso extends PanacheEntity {
     public Double getPrecoTotal() { return precoTotal; }
     public void setPrecoTotal(Double precoTotal) { this.precoTotal = precoTotal; }
 
+    public LocalDateTime getExpiraEm() { return expiraEm; }
+    public void setExpiraEm(LocalDateTime expiraEm) { this.expiraEm = expiraEm; }
+
     public StatusIngresso getStatus() { return status; }
     public void setStatus(StatusIngresso status) { this.status = status; }
 
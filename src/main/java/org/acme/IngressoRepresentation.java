@@ -2,6 +2,8 @@ package org.acme;
 
 import jakarta.ws.rs.core.UriInfo;
 
+import java.time.LocalDateTime;
+
 public class IngressoRepresentation {
     public Long id;
     public String nomeComprador;
@@ -10,22 +12,45 @@ public class IngressoRepresentation {
     public Integer quantidade;
     public Double precoTotal;
     public String status;
+    public String expiraEm;
     public Long eventoId;
 
     public IngressoRepresentation() {
     }
 
+    /** Colunas de {@link #IngressoRepresentation(Long, String, String, LocalDateTime, Integer, Double, Ingresso.StatusIngresso, LocalDateTime, Long)}. */
+    public static final String PROJECAO = "select id, nomeComprador, emailComprador, dataCompra, quantidade, precoTotal,"
+            + " status, expiraEm, evento.id from Ingresso";
+
+    /** Campos aceitos em {@code ?fields=}. */
+    public static final CamposEsparsos CAMPOS = new CamposEsparsos("Ingresso",
+            CamposEsparsos.coluna("id"),
+            CamposEsparsos.coluna("nomeComprador"),
+            CamposEsparsos.coluna("emailComprador"),
+            CamposEsparsos.coluna("dataCompra"),
+            CamposEsparsos.coluna("quantidade"),
+            CamposEsparsos.coluna("precoTotal"),
+            CamposEsparsos.coluna("status"),
+            CamposEsparsos.coluna("expiraEm"),
+            CamposEsparsos.coluna("eventoId", "evento.id"));
+
+    // Usado pelas consultas de projeção, que criam a representação direto das colunas, sem entidade gerenciada
+    public IngressoRepresentation(Long id, String nomeComprador, String emailComprador, LocalDateTime dataCompra,
+                                  Integer quantidade, Double precoTotal, Ingresso.StatusIngresso status,
+                                  LocalDateTime expiraEm, Long eventoId) {
+        this.id = id;
+        this.nomeComprador = nomeComprador;
+        this.emailComprador = emailComprador;
+        this.dataCompra = dataCompra.toString();
+        this.quantidade = quantidade;
+        this.precoTotal = precoTotal;
+        this.status = status.toString();
+        this.expiraEm = expiraEm != null ? expiraEm.toString() : null;
+        this.eventoId = eventoId;
+    }
+
     public static IngressoRepresentation from(Ingresso ingresso, UriInfo uriInfo) {
-        IngressoRepresentation rep = new IngressoRepresentation();
-        rep.id = ingresso.id;
-        rep.nomeComprador = ingresso.nomeComprador;
-        rep.emailComprador = ingresso.emailComprador;
-        rep.dataCompra = ingresso.dataCompra.toString();
-        rep.quantidade = ingresso.quantidade;
-        rep.precoTotal = ingresso.precoTotal;
-        rep.status = ingresso.status.toString();
-        rep.eventoId = ingresso.evento.id;
-
-        return rep;
+        return new IngressoRepresentation(ingresso.id, ingresso.nomeComprador, ingresso.emailComprador, ingresso.dataCompra,
+                ingresso.quantidade, ingresso.precoTotal, ingresso.status, ingresso.expiraEm, ingresso.evento.id);
     }
-}
\ No newline at end of file
+}
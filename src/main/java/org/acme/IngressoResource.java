@@ -1,5 +1,6 @@
 package org.acme;
 
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
@@ -7,6 +8,9 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import jakarta.persistence.OptimisticLockException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
@@ -27,6 +31,25 @@ public class IngressoResource {
     @Context
     UriInfo uriInfo;
 
+    @Inject
+    ContagemCache contagemCache;
+
+    @Inject
+    CapacidadeLedger capacidadeLedger;
+
+    @Inject
+    ExpiracaoReservas expiracaoReservas;
+
+    // Campos aceitos na paginação por cursor
+    private static final Map<String, PaginacaoCursor.Campo<Ingresso>> ORDENAVEIS = PaginacaoCursor.campos(
+            new PaginacaoCursor.Campo<>("id", Long.class, i -> i.id),
+            new PaginacaoCursor.Campo<>("nomeComprador", String.class, i -> i.nomeComprador),
+            new PaginacaoCursor.Campo<>("emailComprador", String.class, i -> i.emailComprador),
+            new PaginacaoCursor.Campo<>("dataCompra", LocalDateTime.class, i -> i.dataCompra),
+            new PaginacaoCursor.Campo<>("quantidade", Integer.class, i -> i.quantidade),
+            new PaginacaoCursor.Campo<>("precoTotal", Double.class, i -> i.precoTotal),
+            new PaginacaoCursor.Campo<>("status", Ingresso.StatusIngresso.class, i -> i.status));
+
     private IngressoRepresentation rep(Ingresso i) {
         return IngressoRepresentation.from(i, uriInfo);
     }
@@ -36,28 +59,28 @@ public class IngressoResource {
     }
 
     @GET
-    @Operation(summary = "Listar todos os ingressos com paginação")
+    @Operation(summary = "Listar todos os ingressos com paginação", description = "Com o parâmetro cursor (vazio na primeira página) usa paginação por cursor; senão, page/size, com o total no modo do parâmetro total (exato, cache, estimado ou nenhum). fields limita os campos retornados (ex.: fields=id,nome,status)")
     public Response getAll(
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("10") int size,
             @QueryParam("sort") @DefaultValue("id") String sort,
-            @QueryParam("direction") @DefaultValue("desc") String direction) {
+            @QueryParam("direction") @DefaultValue("desc") String direction,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") String total,
+            @QueryParam("fields") String fields) {
+
+        List<String> campos = IngressoRepresentation.CAMPOS.solicitados(fields);
+        if (PaginacaoCursor.solicitada(uriInfo)) {
+            return paginarPorCursor(List.of(), Map.of(), sort, direction, size, cursor, campos);
+        }
 
         String orderBy = "ORDER BY " + sort + " " + direction;
-        PanacheQuery<Ingresso> query = Ingresso.find(orderBy);
-        List<Ingresso> ingressos = query.page(page, size).list();
-        long totalCount = query.count();
-
-        List<IngressoRepresentation> representations = repList(ingressos);
-        PageResponse<IngressoRepresentation> response =
-                new PageResponse<>(representations, page, size, totalCount);
-
-        return Response.ok(response).build();
+        return paginar(orderBy, Map.of(), "", Map.of(), page, size, total, campos);
     }
 
     @GET
     @Path("/search")
-    @Operation(summary = "Buscar ingressos com paginação e filtros avançados")
+    @Operation(summary = "Buscar ingressos com paginação e filtros avançados", description = "Aceita os parâmetros cursor, total e fields como a listagem")
     public Response searchIngressos(
             @QueryParam("email") String email,
             @QueryParam("status") Ingresso.StatusIngresso status,
@@ -65,7 +88,12 @@ public class IngressoResource {
             @QueryParam("page") @DefaultValue("0") int page,
             @QueryParam("size") @DefaultValue("10") int size,
             @QueryParam("sort") @DefaultValue("id") String sort,
-            @QueryParam("direction") @DefaultValue("desc") String direction) {
+            @QueryParam("direction") @DefaultValue("desc") String direction,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("total") String total,
+            @QueryParam("fields") String fields) {
+
+        List<String> campos = IngressoRepresentation.CAMPOS.solicitados(fields);
 
         // Construir query dinâmica
         StringBuilder queryBuilder = new StringBuilder();
@@ -88,6 +116,10 @@ public class IngressoResource {
             params.put("eventoId", eventoId);
         }
 
+        if (PaginacaoCursor.solicitada(uriInfo)) {
+            return paginarPorCursor(conditions, params, sort, direction, size, cursor, campos);
+        }
+
         String whereClause = "";
         if (!conditions.isEmpty()) {
             whereClause = "WHERE " + String.join(" AND ", conditions);
@@ -97,15 +129,35 @@ public class IngressoResource {
         String fullQuery = whereClause + " " + orderBy;
 
         // Consulta paginada
-        PanacheQuery<Ingresso> panacheQuery = Ingresso.find(fullQuery, params);
-        List<Ingresso> ingressos = panacheQuery.page(page, size).list();
-        long totalCount = panacheQuery.count();
+        return paginar(fullQuery, params, whereClause, params, page, size, total, campos);
+    }
 
-        List<IngressoRepresentation> representations = repList(ingressos);
-        PageResponse<IngressoRepresentation> response =
-                new PageResponse<>(representations, page, size, totalCount);
+    // Página completa, projetada direto na representação, ou só com os campos de ?fields=
+    private Response paginar(String fullQuery, Map<String, Object> params, String whereClause,
+                             Map<String, Object> chaveContagem, int page, int size, String total, List<String> campos) {
+        if (campos != null) {
+            // Só as colunas pedidas entram no SELECT
+            PanacheQuery<Object[]> parcial =
+                    Ingresso.find(IngressoRepresentation.CAMPOS.projecao(campos) + " " + fullQuery, params).project(Object[].class);
+            return Response.ok(contagemCache.paginar(Ingresso.class, parcial, whereClause, chaveContagem, page, size, total,
+                    linhas -> IngressoRepresentation.CAMPOS.montar(campos, linhas))).build();
+        }
+        // Projeção: as linhas viram representações direto, sem entidades no contexto de persistência
+        PanacheQuery<IngressoRepresentation> query =
+                Ingresso.find(IngressoRepresentation.PROJECAO + " " + fullQuery, params).project(IngressoRepresentation.class);
+        return Response.ok(contagemCache.paginar(
+                Ingresso.class, query, whereClause, chaveContagem, page, size, total, reps -> reps)).build();
+    }
 
-        return Response.ok(response).build();
+    private Response paginarPorCursor(List<String> conditions, Map<String, Object> params,
+                                      String sort, String direction, int size, String cursor, List<String> campos) {
+        PaginacaoCursor.Pagina<Ingresso> pagina = PaginacaoCursor.buscar(
+                (query, parametros) -> Ingresso.find(query, parametros), ORDENAVEIS,
+                conditions, params, sort, direction, size, cursor);
+        List<IngressoRepresentation> reps = repList(pagina.itens());
+        // A página por cursor precisa das entidades; com fields, só a resposta é reduzida
+        List<?> content = campos == null ? reps : IngressoRepresentation.CAMPOS.filtrar(campos, reps);
+        return Response.ok(new CursorPageResponse<>(content, size, pagina.proximoCursor())).build();
     }
 
     @GET
@@ -115,7 +167,7 @@ public class IngressoResource {
         Ingresso entity = Ingresso.findById(id);
         if (entity == null)
             return Response.status(404).build();
-        return Response.ok(rep(entity)).build();
+        return Response.ok(rep(entity)).tag(EtagUtil.etag(entity.versao)).build();
     }
 
     @POST
@@ -128,9 +180,9 @@ public class IngressoResource {
             return Response.status(Response.Status.NOT_FOUND).entity("Evento não encontrado").build();
         }
 
-        // Verifique a capacidade do evento
-        long ingressosVendidos = Ingresso.count("evento.id", evento.id);
-        if (ingressosVendidos + request.getQuantidade() > evento.capacidadeMaxima) {
+        // Reserve a capacidade no ledger do evento
+        CapacidadeLedger.Reserva reserva = capacidadeLedger.reservar(evento.id, request.getQuantidade());
+        if (reserva == CapacidadeLedger.Reserva.INSUFICIENTE) {
             return Response.status(Response.Status.BAD_REQUEST).entity("Capacidade máxima do evento excedida").build();
         }
 
@@ -145,11 +197,13 @@ public class IngressoResource {
         ingresso.dataCompra = LocalDateTime.now();
         ingresso.precoTotal = request.getQuantidade() * evento.precoIngresso;
         ingresso.status = Ingresso.StatusIngresso.RESERVADO;
+        ingresso.expiraEm = expiracaoReservas.novoPrazo();
 
         ingresso.persist();
+        expiracaoReservas.agendar(ingresso.id, ingresso.expiraEm);
 
         // Atualizar status do evento se necessário
-        if (Ingresso.count("evento.id", evento.id) >= evento.capacidadeMaxima) {
+        if (reserva == CapacidadeLedger.Reserva.ESGOTOU) {
             evento.status = Evento.StatusEvento.ESGOTADO;
         }
 
@@ -160,17 +214,41 @@ public class IngressoResource {
     @Path("{id}")
     @Operation(summary = "Atualizar ingresso")
     @Transactional
-    public Response update(@PathParam("id") long id, @Valid Ingresso newIngresso) {
+    public Response update(@PathParam("id") long id, @HeaderParam("If-Match") String ifMatch, @Valid Ingresso newIngresso) {
         Ingresso entity = Ingresso.findById(id);
         if (entity == null)
             return Response.status(404).build();
+        if (!EtagUtil.confere(ifMatch, entity.versao))
+            return EtagUtil.precondicaoFalhou(entity.versao);
+
+        // Ajusta o ledger pela diferença de lugares ocupados antes e depois da alteração
+        int ocupadoAntes = lugaresOcupados(entity.status, entity.quantidade);
+        int ocupadoDepois = lugaresOcupados(newIngresso.status, newIngresso.quantidade);
+        if (ocupadoDepois > ocupadoAntes) {
+            CapacidadeLedger.Reserva reserva = capacidadeLedger.reservar(entity.evento.id, ocupadoDepois - ocupadoAntes);
+            if (reserva == CapacidadeLedger.Reserva.INSUFICIENTE) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Capacidade máxima do evento excedida").build();
+            }
+            // Esta alteração ocupou o último lugar
+            if (reserva == CapacidadeLedger.Reserva.ESGOTOU) {
+                entity.evento.status = Evento.StatusEvento.ESGOTADO;
+            }
+        }
+        if (ocupadoDepois < ocupadoAntes) {
+            capacidadeLedger.liberar(entity.evento.id, ocupadoAntes - ocupadoDepois);
+            // Lugares devolvidos: o evento volta a ficar disponível
+            if (entity.evento.status == Evento.StatusEvento.ESGOTADO) {
+                entity.evento.status = Evento.StatusEvento.DISPONIVEL;
+            }
+        }
 
         entity.nomeComprador = newIngresso.nomeComprador;
         entity.emailComprador = newIngresso.emailComprador;
         entity.quantidade = newIngresso.quantidade;
         entity.status = newIngresso.status;
 
-        return Response.ok(rep(entity)).build();
+        Ingresso.flush();
+        return Response.ok(rep(entity)).tag(EtagUtil.etag(entity.versao)).build();
     }
 
     @DELETE
@@ -182,6 +260,13 @@ public class IngressoResource {
         if (entity == null)
             return Response.status(404).build();
 
+        int ocupado = lugaresOcupados(entity.status, entity.quantidade);
+        if (ocupado > 0) {
+            capacidadeLedger.liberar(entity.evento.id, ocupado);
+            if (entity.evento.status == Evento.StatusEvento.ESGOTADO) {
+                entity.evento.status = Evento.StatusEvento.DISPONIVEL;
+            }
+        }
         Ingresso.deleteById(id);
         return Response.noContent().build();
     }
@@ -189,18 +274,55 @@ public class IngressoResource {
     @PUT
     @Path("{id}/status")
     @Operation(summary = "Atualizar status do ingresso")
-    @Transactional
+    // Conflitos de versão são repetidos numa nova transação, com atraso aleatório para dispersar as tentativas
+    @Retry(maxRetries = 3, delay = 25, jitter = 20, retryOn = OptimisticLockException.class)
     public Response updateStatus(
             @PathParam("id") long id,
+            @HeaderParam("If-Match") String ifMatch,
             @QueryParam("status") Ingresso.StatusIngresso novoStatus) {
 
-        Ingresso ingresso = Ingresso.findById(id);
-        if (ingresso == null) {
-            return Response.status(404).build();
-        }
+        return QuarkusTransaction.requiringNew().call(() -> {
+            Ingresso ingresso = Ingresso.findById(id);
+            if (ingresso == null) {
+                return Response.status(404).build();
+            }
+            if (!EtagUtil.confere(ifMatch, ingresso.versao)) {
+                return EtagUtil.precondicaoFalhou(ingresso.versao);
+            }
+
+            // Cancelamentos devolvem os lugares ao ledger; reativações precisam reservá-los de novo
+            int ocupadoAntes = lugaresOcupados(ingresso.status, ingresso.quantidade);
+            int ocupadoDepois = lugaresOcupados(novoStatus, ingresso.quantidade);
+            if (ocupadoDepois > ocupadoAntes) {
+                CapacidadeLedger.Reserva reserva = capacidadeLedger.reservar(ingresso.evento.id, ocupadoDepois - ocupadoAntes);
+                if (reserva == CapacidadeLedger.Reserva.INSUFICIENTE) {
+                    return Response.status(Response.Status.BAD_REQUEST).entity("Capacidade máxima do evento excedida").build();
+                }
+                // Esta alteração ocupou o último lugar
+                if (reserva == CapacidadeLedger.Reserva.ESGOTOU) {
+                    ingresso.evento.status = Evento.StatusEvento.ESGOTADO;
+                }
+            }
+            if (ocupadoDepois < ocupadoAntes) {
+                capacidadeLedger.liberar(ingresso.evento.id, ocupadoAntes - ocupadoDepois);
+                // Lugares devolvidos: o evento volta a ficar disponível
+                if (ingresso.evento.status == Evento.StatusEvento.ESGOTADO) {
+                    ingresso.evento.status = Evento.StatusEvento.DISPONIVEL;
+                }
+            }
+
+            ingresso.status = novoStatus;
+            Ingresso.flush();
+            return Response.ok(rep(ingresso)).tag(EtagUtil.etag(ingresso.versao)).build();
+        });
+    }
 
-        ingresso.status = novoStatus;
-        return Response.ok(rep(ingresso)).build();
+    // Lugares que um ingresso ocupa na capacidade do evento (cancelados não ocupam)
+    private static int lugaresOcupados(Ingresso.StatusIngresso status, Integer quantidade) {
+        if (status == Ingresso.StatusIngresso.CANCELADO || quantidade == null) {
+            return 0;
+        }
+        return quantidade;
     }
 
     // Endpoints de busca simples (mantidos para compatibilidade)
@@ -0,0 +1,250 @@
+package org.acme;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Limitador de taxa aproximado, com memória fixa independente do número de
+ * clientes.
+ *
+ * As contagens ficam em dois count-min sketches, um para a janela atual e
+ * outro para a anterior; a taxa é estimada por janela deslizante, somando a
+ * janela atual à fração ainda válida da anterior. O sketch nunca subestima:
+ * com probabilidade {@code 1 - confianca} o excesso é no máximo
+ * {@code erro × total de requisições da janela}, e o erro só pode bloquear um
+ * cliente antes da hora, nunca deixá-lo passar do limite.
+ *
+ * Cada linha do sketch usa um SipHash com chave sorteada na inicialização,
+ * sobre os bytes de cliente e rota, para que não se possam montar clientes
+ * que colidam de propósito com outros. A troca de janela só substitui
+ * referências: o sketch que entra já vem zerado por uma tarefa agendada, fora
+ * das requisições, e contagens feitas durante a troca caem numa das janelas
+ * ainda em uso.
+ *
+ * Os clientes mais bloqueados são acompanhados com o algoritmo Space-Saving,
+ * também com memória fixa.
+ */
+@ApplicationScoped
+@Named("aproximado")
+public class LimitadorAproximado implements RateLimitBackend {
+
+    @ConfigProperty(name = "festival.rate-limit.aproximado.erro", defaultValue = "0.0001")
+    double erro;
+
+    @ConfigProperty(name = "festival.rate-limit.aproximado.confianca", defaultValue = "0.01")
+    double confianca;
+
+    @ConfigProperty(name = "festival.rate-limit.aproximado.top", defaultValue = "50")
+    int tamanhoTop;
+
+    private int largura;
+    private int profundidade;
+    // Chave do SipHash de cada linha: dois longs por linha
+    private long[] sementes;
+
+    private record Janela(long numero, AtomicIntegerArray contagens, AtomicLong total) {
+    }
+
+    private record Estado(Janela atual, Janela anterior) {
+    }
+
+    // Os sketches só são alocados na primeira requisição; com outro festival.rate-limit.modo o filtro nunca chama tentar()
+    private final AtomicReference<Estado> estado = new AtomicReference<>(
+            new Estado(new Janela(Long.MIN_VALUE, null, new AtomicLong()), new Janela(Long.MIN_VALUE, null, new AtomicLong())));
+    // Sketch já zerado para a próxima janela e o último que saiu de uso, ainda por zerar
+    private final AtomicReference<AtomicIntegerArray> reserva = new AtomicReference<>();
+    private final AtomicReference<AtomicIntegerArray> aposentado = new AtomicReference<>();
+
+    private EspacoEconomico maisBloqueados;
+
+    /** Parâmetros e contagens expostos no endpoint administrativo. */
+    public record Resumo(int largura, int profundidade, double erro, double confianca,
+                         long requisicoesNaJanela, long erroMaximoNaJanela, List<EspacoEconomico.Contador> maisBloqueados) {
+    }
+
+    @PostConstruct
+    void iniciar() {
+        largura = (int) Math.ceil(Math.E / erro);
+        profundidade = (int) Math.ceil(Math.log(1 / confianca));
+        sementes = new long[2 * profundidade];
+        SecureRandom aleatorio = new SecureRandom();
+        for (int i = 0; i < sementes.length; i++) {
+            sementes[i] = aleatorio.nextLong();
+        }
+        maisBloqueados = new EspacoEconomico(tamanhoTop);
+    }
+
+    @Override
+    public Decisao tentar(String cliente, String rota, int limite, long janela) {
+        long agora = System.nanoTime();
+        long numero = Math.floorDiv(agora, janela);
+        Estado vigente = girar(numero);
+
+        AtomicIntegerArray atual = vigente.atual().contagens();
+        AtomicIntegerArray anterior = vigente.anterior().contagens();
+        double pesoAnterior = 1.0 - (double) Math.floorMod(agora, janela) / janela;
+
+        int[] indices = indices(cliente, rota);
+        int minimoAtual = Integer.MAX_VALUE;
+        int minimoAnterior = Integer.MAX_VALUE;
+        for (int indice : indices) {
+            minimoAtual = Math.min(minimoAtual, atual.get(indice));
+            minimoAnterior = Math.min(minimoAnterior, anterior.get(indice));
+        }
+
+        double estimativa = minimoAtual + minimoAnterior * pesoAnterior;
+        if (estimativa >= limite) {
+            maisBloqueados.registrar(cliente);
+            long esperaNanos = (long) (janela * Math.min(1.0, (estimativa - limite + 1) / Math.max(1, limite)));
+            return new Decisao(false, 0, esperaNanos);
+        }
+
+        // Atualização conservadora: só sobem as células que estavam no mínimo, o que reduz a superestimativa
+        int novo = minimoAtual + 1;
+        for (int indice : indices) {
+            atual.accumulateAndGet(indice, novo, Math::max);
+        }
+        vigente.atual().total().incrementAndGet();
+        return new Decisao(true, (int) Math.max(0, limite - estimativa - 1), 0);
+    }
+
+    // Posição do par cliente/rota em cada linha; o tamanho do cliente separa "ab" + "c" de "a" + "bc"
+    private int[] indices(String cliente, String rota) {
+        byte[] bytesCliente = cliente.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesRota = rota.getBytes(StandardCharsets.UTF_8);
+        byte[] chave = ByteBuffer.allocate(4 + bytesCliente.length + bytesRota.length)
+                .putInt(bytesCliente.length).put(bytesCliente).put(bytesRota).array();
+        int[] indices = new int[profundidade];
+        for (int i = 0; i < profundidade; i++) {
+            long hash = SipHash.hash(sementes[2 * i], sementes[2 * i + 1], chave);
+            indices[i] = i * largura + (int) Long.remainderUnsigned(hash, largura);
+        }
+        return indices;
+    }
+
+    // Ao entrar numa nova janela, quem chega primeiro troca o estado; as demais threads usam o novo
+    private Estado girar(long numero) {
+        while (true) {
+            Estado visto = estado.get();
+            if (visto.atual().numero() >= numero) {
+                return visto;
+            }
+            Janela nova = new Janela(numero, zerado(), new AtomicLong());
+            // Mais de uma janela sem tráfego: a anterior também está vencida
+            boolean consecutiva = visto.atual().numero() == numero - 1;
+            Janela anterior = consecutiva ? visto.atual() : new Janela(numero - 1, zerado(), new AtomicLong());
+            Estado novo = new Estado(nova, anterior);
+            if (estado.compareAndSet(visto, novo)) {
+                aposentar(visto.anterior().contagens());
+                if (!consecutiva) {
+                    aposentar(visto.atual().contagens());
+                }
+                return novo;
+            }
+            // Outra thread trocou antes: os sketches separados continuam zerados
+            devolver(nova.contagens());
+            if (!consecutiva) {
+                devolver(anterior.contagens());
+            }
+        }
+    }
+
+    private AtomicIntegerArray zerado() {
+        AtomicIntegerArray pronto = reserva.getAndSet(null);
+        return pronto != null ? pronto : new AtomicIntegerArray(largura * profundidade);
+    }
+
+    private void aposentar(AtomicIntegerArray contagens) {
+        if (contagens != null) {
+            aposentado.set(contagens);
+        }
+    }
+
+    private void devolver(AtomicIntegerArray contagens) {
+        reserva.compareAndSet(null, contagens);
+    }
+
+    /** Zera o último sketch que saiu de uso e o deixa pronto para a próxima troca de janela. */
+    @Scheduled(every = "${festival.rate-limit.aproximado.preparo:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void prepararReserva() {
+        if (reserva.get() != null) {
+            return;
+        }
+        AtomicIntegerArray usado = aposentado.getAndSet(null);
+        if (usado == null) {
+            return;
+        }
+        for (int i = 0; i < usado.length(); i++) {
+            usado.set(i, 0);
+        }
+        reserva.compareAndSet(null, usado);
+    }
+
+    public Resumo resumo() {
+        long total = estado.get().atual().total().get();
+        return new Resumo(largura, profundidade, erro, confianca, total,
+                (long) Math.ceil(erro * total), maisBloqueados.top());
+    }
+
+    /**
+     * Space-Saving: mantém no máximo {@code capacidade} contadores. Um cliente
+     * novo com a estrutura cheia herda o contador do menor, que vira seu erro
+     * máximo; quem aparece com frequência acima de 1/capacidade é sempre listado.
+     */
+    public static class EspacoEconomico {
+
+        public record Contador(String cliente, long bloqueios, long erroMaximo) {
+        }
+
+        private final int capacidade;
+        private final Map<String, long[]> contadores = new HashMap<>();
+
+        public EspacoEconomico(int capacidade) {
+            this.capacidade = capacidade;
+        }
+
+        public synchronized void registrar(String cliente) {
+            long[] contador = contadores.get(cliente);
+            if (contador != null) {
+                contador[0]++;
+                return;
+            }
+            if (contadores.size() < capacidade) {
+                contadores.put(cliente, new long[]{1, 0});
+                return;
+            }
+            String menor = null;
+            long[] menorContador = null;
+            for (Map.Entry<String, long[]> e : contadores.entrySet()) {
+                if (menorContador == null || e.getValue()[0] < menorContador[0]) {
+                    menor = e.getKey();
+                    menorContador = e.getValue();
+                }
+            }
+            contadores.remove(menor);
+            contadores.put(cliente, new long[]{menorContador[0] + 1, menorContador[0]});
+        }
+
+        public synchronized List<Contador> top() {
+            List<Contador> lista = new ArrayList<>();
+            contadores.forEach((cliente, c) -> lista.add(new Contador(cliente, c[0], c[1])));
+            lista.sort(Comparator.comparingLong(Contador::bloqueios).reversed());
+            return lista;
+        }
+    }
+}
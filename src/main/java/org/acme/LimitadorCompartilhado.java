@@ -0,0 +1,135 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limitador com cota compartilhada entre réplicas, guardada na tabela
+ * {@link CotaLimite} do banco da aplicação (o H2 local faz o papel do banco
+ * compartilhado).
+ *
+ * Em vez de consultar o banco a cada requisição, cada réplica reserva uma
+ * concessão de até {@code festival.rate-limit.compartilhado.lote} requisições
+ * e a consome localmente com um contador atômico; só volta ao banco quando a
+ * concessão acaba. Para não prender a cota numa única réplica, cada concessão
+ * leva no máximo metade do que resta na janela. As janelas são fixas e
+ * alinhadas ao relógio, para que todas as réplicas concordem sobre elas.
+ */
+@ApplicationScoped
+@Named("compartilhado")
+public class LimitadorCompartilhado implements RateLimitBackend {
+
+    private static final Logger LOG = Logger.getLogger(LimitadorCompartilhado.class);
+
+    @ConfigProperty(name = "festival.rate-limit.compartilhado.lote", defaultValue = "20")
+    int lote;
+
+    @Inject
+    EntityManager em;
+
+    private static final class Concessao {
+        volatile long janela = Long.MIN_VALUE;
+        final AtomicInteger restantes = new AtomicInteger();
+        // Janela em que o banco informou que a cota acabou
+        volatile long esgotadaEm = Long.MIN_VALUE;
+    }
+
+    private final ConcurrentHashMap<LimitadorTaxa.Chave, Concessao> concessoes = new ConcurrentHashMap<>();
+
+    // Duração da janela em uso; zero enquanto este backend não recebeu requisições
+    private volatile long janelaMillis;
+
+    @Override
+    public Decisao tentar(String cliente, String rota, int limite, long janelaNanos) {
+        long janelaMillis = TimeUnit.NANOSECONDS.toMillis(janelaNanos);
+        this.janelaMillis = janelaMillis;
+        long agora = System.currentTimeMillis();
+        long janela = agora / janelaMillis;
+        long ateProximaJanela = TimeUnit.MILLISECONDS.toNanos((janela + 1) * janelaMillis - agora);
+
+        Concessao concessao = concessoes.computeIfAbsent(new LimitadorTaxa.Chave(cliente, rota), k -> new Concessao());
+        while (true) {
+            if (concessao.esgotadaEm == janela) {
+                return new Decisao(false, 0, ateProximaJanela);
+            }
+            int restantes = concessao.restantes.decrementAndGet();
+            if (restantes >= 0 && concessao.janela == janela) {
+                return new Decisao(true, restantes, 0);
+            }
+            synchronized (concessao) {
+                // Outra thread pode ter renovado a concessão enquanto esta esperava
+                if (concessao.janela == janela && concessao.restantes.get() > 0) {
+                    continue;
+                }
+                int concedido;
+                try {
+                    concedido = reservar(cliente + "|" + rota, janela, limite);
+                } catch (RuntimeException e) {
+                    // Sem o banco compartilhado a requisição passa: o limite não deve derrubar a API
+                    LOG.warnf(e, "Erro ao reservar cota compartilhada de %s; requisição liberada sem limite", rota);
+                    return new Decisao(true, 0, 0);
+                }
+                if (concedido == 0) {
+                    concessao.esgotadaEm = janela;
+                    return new Decisao(false, 0, ateProximaJanela);
+                }
+                concessao.janela = janela;
+                concessao.restantes.set(concedido - 1);
+                return new Decisao(true, concedido - 1, 0);
+            }
+        }
+    }
+
+    /** Reserva no banco uma concessão para esta réplica e retorna quantas requisições foram concedidas. */
+    private int reservar(String chave, long janela, int limite) {
+        try {
+            return QuarkusTransaction.requiringNew().call(() -> reservarNaTransacao(chave, janela, limite));
+        } catch (PersistenceException e) {
+            // Duas réplicas criaram a mesma linha ao mesmo tempo: a segunda tentativa já a encontra
+            return QuarkusTransaction.requiringNew().call(() -> reservarNaTransacao(chave, janela, limite));
+        }
+    }
+
+    private int reservarNaTransacao(String chave, long janela, int limite) {
+        CotaLimite cota = em.find(CotaLimite.class, chave, LockModeType.PESSIMISTIC_WRITE);
+        if (cota == null) {
+            cota = new CotaLimite();
+            cota.chave = chave;
+            cota.janela = janela;
+            em.persist(cota);
+        } else if (cota.janela != janela) {
+            cota.janela = janela;
+            cota.concedido = 0;
+        }
+        int disponivel = limite - cota.concedido;
+        int concedido = Math.max(0, Math.min(lote, (disponivel + 1) / 2));
+        cota.concedido += concedido;
+        em.flush();
+        return concedido;
+    }
+
+    /** Descarta concessões locais e linhas do banco de janelas já encerradas. */
+    @Scheduled(every = "${festival.rate-limit.limpeza:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void limpar() {
+        if (janelaMillis == 0) {
+            return;
+        }
+        long janelaAtual = System.currentTimeMillis() / janelaMillis;
+        concessoes.values().removeIf(c -> c.janela < janelaAtual && c.esgotadaEm < janelaAtual);
+        QuarkusTransaction.requiringNew().run(() -> em.createQuery("delete from CotaLimite c where c.janela < :janela")
+                .setParameter("janela", janelaAtual)
+                .executeUpdate());
+    }
+}
@@ -0,0 +1,66 @@
+package org.acme;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de taxa GCRA (generic cell rate algorithm).
+ *
+ * Cada chave guarda um único {@code long}: o instante teórico de chegada
+ * (TAT) da próxima requisição, em {@link System#nanoTime()}. Uma requisição
+ * é aceita se o TAT não estiver à frente do relógio mais do que a tolerância
+ * de rajada; aceitar avança o TAT por um intervalo de emissão via CAS, sem
+ * locks. Chaves cujo TAT já passou equivalem a chaves novas e são removidas
+ * periodicamente.
+ */
+@ApplicationScoped
+@Named("exato")
+public class LimitadorTaxa implements RateLimitBackend {
+
+    /** Cliente (API key ou IP) e rota limitados juntos. */
+    public record Chave(String cliente, String rota) {
+    }
+
+    private final ConcurrentHashMap<Chave, AtomicLong> chegadas = new ConcurrentHashMap<>();
+
+    /** Rajadas de até {@code limite} requisições são aceitas de uma vez. */
+    @Override
+    public Decisao tentar(String cliente, String rota, int limite, long janelaNanos) {
+        Chave chave = new Chave(cliente, rota);
+        long intervalo = janelaNanos / limite;
+        long tolerancia = intervalo * (limite - 1);
+
+        AtomicLong tat = chegadas.get(chave);
+        if (tat == null) {
+            AtomicLong novo = new AtomicLong(System.nanoTime());
+            tat = chegadas.putIfAbsent(chave, novo);
+            if (tat == null) {
+                tat = novo;
+            }
+        }
+
+        while (true) {
+            long agora = System.nanoTime();
+            long atual = tat.get();
+            long base = atual - agora > 0 ? atual : agora;
+            long adiantamento = base - agora;
+            if (adiantamento > tolerancia) {
+                return new Decisao(false, 0, adiantamento - tolerancia);
+            }
+            if (tat.compareAndSet(atual, base + intervalo)) {
+                return new Decisao(true, (int) ((tolerancia - adiantamento) / intervalo), 0);
+            }
+        }
+    }
+
+    /** Remove chaves ociosas, cujo TAT já ficou para trás. */
+    @Scheduled(every = "${festival.rate-limit.limpeza:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void despejarOciosas() {
+        long agora = System.nanoTime();
+        chegadas.entrySet().removeIf(e -> e.getValue().get() - agora <= 0);
+    }
+}
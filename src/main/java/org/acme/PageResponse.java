@@ -1,13 +1,20 @@
 package org.acme;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PageResponse<T> {
     public List<T> content;
     public int currentPage;
     public int pageSize;
-    public long totalElements;
-    public int totalPages;
+    // Ausentes no modo total=nenhum
+    public Long totalElements;
+    public Integer totalPages;
+    // Só fora do modo exato: false quando totalElements é um limite inferior
+    public Boolean totalExato;
+    public Boolean hasNext;
 
     public PageResponse(List<T> content, int currentPage, int pageSize, long totalElements) {
         this.content = content;
@@ -17,10 +24,31 @@ public class PageResponse<T> {
         this.totalPages = (int) Math.ceil((double) totalElements / pageSize);
     }
 
+    private PageResponse(List<T> content, int currentPage, int pageSize, boolean hasNext) {
+        this.content = content;
+        this.currentPage = currentPage;
+        this.pageSize = pageSize;
+        this.hasNext = hasNext;
+    }
+
+    public static <T> PageResponse<T> semTotal(List<T> content, int currentPage, int pageSize, boolean hasNext) {
+        return new PageResponse<>(content, currentPage, pageSize, hasNext);
+    }
+
+    public static <T> PageResponse<T> comTotal(List<T> content, int currentPage, int pageSize,
+                                               long totalElements, boolean exato, boolean hasNext) {
+        PageResponse<T> response = new PageResponse<>(content, currentPage, pageSize, totalElements);
+        response.totalExato = exato;
+        response.hasNext = hasNext;
+        return response;
+    }
+
     // Getters
     public List<T> getContent() { return content; }
     public int getCurrentPage() { return currentPage; }
     public int getPageSize() { return pageSize; }
-    public long getTotalElements() { return totalElements; }
-    public int getTotalPages() { return totalPages; }
+    public Long getTotalElements() { return totalElements; }
+    public Integer getTotalPages() { return totalPages; }
+    public Boolean getTotalExato() { return totalExato; }
+    public Boolean getHasNext() { return hasNext; }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package org.acme;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.hibernate.jpa.HibernateHints;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Paginação por cursor (keyset) para as listagens.
+ *
+ * Em vez de OFFSET, cada página continua a partir do último registro da
+ * anterior: {@code WHERE (campo, id) > (:valor, :id) ORDER BY campo, id}.
+ * O banco busca só {@code size + 1} linhas a partir da posição, então a
+ * página N custa o mesmo que a primeira, e inserções entre páginas não
+ * causam itens repetidos ou pulados.
+ *
+ * O cursor é opaco para o cliente: Base64 URL do campo e direção de
+ * ordenação, do id e do valor do campo no último item.
+ */
+public class PaginacaoCursor {
+
+    /** Campo que pode ser usado na ordenação por cursor; precisa ser não nulo. */
+    public record Campo<T>(String nome, Class<?> tipo, Function<T, Object> valor) {
+    }
+
+    public record Pagina<T>(List<T> itens, String proximoCursor) {
+    }
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    @SafeVarargs
+    public static <T> Map<String, Campo<T>> campos(Campo<T>... campos) {
+        Map<String, Campo<T>> porNome = new LinkedHashMap<>();
+        for (Campo<T> campo : campos) {
+            porNome.put(campo.nome(), campo);
+        }
+        return porNome;
+    }
+
+    /** true se a requisição trouxer o parâmetro cursor, mesmo vazio (primeira página). */
+    public static boolean solicitada(UriInfo uriInfo) {
+        return uriInfo.getQueryParameters().containsKey("cursor");
+    }
+
+    /**
+     * Busca a página que começa depois do cursor (ou a primeira, se ele for
+     * vazio), com as condições e parâmetros do filtro já montados.
+     */
+    public static <T extends PanacheEntity> Pagina<T> buscar(
+            BiFunction<String, Map<String, Object>, PanacheQuery<T>> find,
+            Map<String, Campo<T>> ordenaveis,
+            List<String> condicoes,
+            Map<String, Object> params,
+            String sort,
+            String direction,
+            int size,
+            String cursor) {
+
+        Campo<T> campo = ordenaveis.get(sort);
+        if (campo == null) {
+            throw requisicaoInvalida("Ordenação por cursor disponível apenas para: " + String.join(", ", ordenaveis.keySet()));
+        }
+        if (size < 1) {
+            throw requisicaoInvalida("O tamanho da página deve ser positivo");
+        }
+        boolean desc = "desc".equalsIgnoreCase(direction);
+        String operador = desc ? "<" : ">";
+        String ordem = desc ? "desc" : "asc";
+
+        List<String> todas = new ArrayList<>(condicoes);
+        Map<String, Object> todosParams = new HashMap<>(params);
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = decodificar(cursor);
+            if (!partes[0].equals(campo.nome()) || !partes[1].equals(ordem)) {
+                throw requisicaoInvalida("O cursor foi gerado com outra ordenação");
+            }
+            todosParams.put("cursorId", Long.parseLong(partes[2]));
+            if (campo.nome().equals("id")) {
+                todas.add("id " + operador + " :cursorId");
+            } else {
+                todosParams.put("cursorValor", converter(partes[3], campo.tipo()));
+                todas.add("(" + campo.nome() + " " + operador + " :cursorValor or (" + campo.nome()
+                        + " = :cursorValor and id " + operador + " :cursorId))");
+            }
+        }
+
+        String where = todas.isEmpty() ? "" : "WHERE " + String.join(" AND ", todas) + " ";
+        String orderBy = campo.nome().equals("id")
+                ? "ORDER BY id " + ordem
+                : "ORDER BY " + campo.nome() + " " + ordem + ", id " + ordem;
+
+        // Uma linha a mais indica se existe próxima página; somente leitura, sem snapshot para dirty checking
+        List<T> itens = new ArrayList<>(find.apply(where + orderBy, todosParams)
+                .withHint(HibernateHints.HINT_READ_ONLY, true)
+                .range(0, size)
+                .list());
+        String proximo = null;
+        if (itens.size() > size) {
+            itens.remove(size);
+            T ultimo = itens.get(size - 1);
+            proximo = codificar(campo.nome(), ordem, ultimo.id, campo.valor().apply(ultimo));
+        }
+        return new Pagina<>(itens, proximo);
+    }
+
+    private static String codificar(String campo, String ordem, Long id, Object valor) {
+        String texto = valor instanceof Enum<?> e ? e.name() : String.valueOf(valor);
+        String conteudo = campo + "\n" + ordem + "\n" + id + "\n" + texto;
+        return BASE64.encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodificar(String cursor) {
+        try {
+            String[] partes = new String(BASE64_DECODER.decode(cursor), StandardCharsets.UTF_8).split("\n", 4);
+            if (partes.length != 4) {
+                throw requisicaoInvalida("Cursor inválido");
+            }
+            Long.parseLong(partes[2]);
+            return partes;
+        } catch (IllegalArgumentException e) {
+            throw requisicaoInvalida("Cursor inválido");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object converter(String valor, Class<?> tipo) {
+        try {
+            if (tipo == String.class) {
+                return valor;
+            } else if (tipo == Long.class) {
+                return Long.valueOf(valor);
+            } else if (tipo == Integer.class) {
+                return Integer.valueOf(valor);
+            } else if (tipo == Double.class) {
+                return Double.valueOf(valor);
+            } else if (tipo == LocalDate.class) {
+                return LocalDate.parse(valor);
+            } else if (tipo == LocalDateTime.class) {
+                return LocalDateTime.parse(valor);
+            } else if (tipo.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) tipo, valor);
+            }
+        } catch (RuntimeException e) {
+            throw requisicaoInvalida("Cursor inválido");
+        }
+        throw new IllegalArgumentException("Tipo de campo não suportado no cursor: " + tipo);
+    }
+
+    private static BadRequestException requisicaoInvalida(String mensagem) {
+        return new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                .entity("{\"message\": \"" + mensagem + "\"}")
+                .build());
+    }
+}
@@ -0,0 +1,20 @@
+package org.acme;
+
+/**
+ * Armazenamento das cotas usadas pelo {@link RateLimitingFilter}.
+ *
+ * Cada implementação é um bean {@code @Named} com o valor aceito em
+ * {@code festival.rate-limit.modo}; o filtro escolhe uma na inicialização.
+ */
+public interface RateLimitBackend {
+
+    /** Resultado de uma verificação: requisições restantes se permitida, ou espera até a próxima vaga. */
+    record Decisao(boolean permitida, int restantes, long esperaNanos) {
+    }
+
+    /**
+     * Consome uma requisição da cota de {@code cliente} na {@code rota}: no
+     * máximo {@code limite} requisições a cada {@code janelaNanos}.
+     */
+    Decisao tentar(String cliente, String rota, int limite, long janelaNanos);
+}
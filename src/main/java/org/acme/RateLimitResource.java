@@ -0,0 +1,48 @@
+package org.acme;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Path("/api/v1/admin/rate-limit")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Administração", description = "Operações restritas a administradores")
+public class RateLimitResource {
+
+    @Inject
+    LimitadorAproximado limitadorAproximado;
+
+    @GET
+    @Path("/mais-bloqueados")
+    @Operation(summary = "Clientes mais bloqueados", description = "Parâmetros do limitador aproximado e os clientes com mais requisições bloqueadas")
+    public Response maisBloqueados(@Context SecurityContext securityContext) {
+        if (!securityContext.isUserInRole(Usuario.TipoUsuario.ADMIN.name())) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity("{\"message\": \"Acesso restrito a administradores\"}")
+                    .build();
+        }
+
+        LimitadorAproximado.Resumo resumo = limitadorAproximado.resumo();
+        // API keys não são expostas por inteiro
+        List<LimitadorAproximado.EspacoEconomico.Contador> mascarados = resumo.maisBloqueados().stream()
+                .map(c -> new LimitadorAproximado.EspacoEconomico.Contador(mascarar(c.cliente()), c.bloqueios(), c.erroMaximo()))
+                .collect(Collectors.toList());
+        return Response.ok(new LimitadorAproximado.Resumo(resumo.largura(), resumo.profundidade(), resumo.erro(),
+                resumo.confianca(), resumo.requisicoesNaJanela(), resumo.erroMaximoNaJanela(), mascarados)).build();
+    }
+
+    private static String mascarar(String cliente) {
+        if (cliente.startsWith("apikey:") && cliente.length() > 13) {
+            return cliente.substring(0, 13) + "...";
+        }
+        return cliente;
+    }
+}
@@ -1,86 +1,104 @@
 package org.acme;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.literal.NamedLiteral;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import java.io.IOException;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Provider
 public class RateLimitingFilter implements ContainerRequestFilter, ContainerResponseFilter {
 
-    private static final long WINDOW_MILLIS = 60000; // 1 minuto
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1); // 1 minuto
     private static final String HEADER_LIMIT = "X-RateLimit-Limit";
     private static final String HEADER_REMAINING = "X-RateLimit-Remaining";
 
-    private static final Map<String, Window> clientWindows = new ConcurrentHashMap<>();
+    // Rotas sem regra própria dividem uma única cota por cliente
+    private static final String DEFAULT_ROUTE = "*";
 
-    // Limites por endpoint
-    private static final Map<String, Integer> ENDPOINT_LIMITS = Map.of(
-            "/api/v1/ingressos", 10,
-            "/api/v1/apikeys/generate", 10,
-            "/api/v1/auth/login", 10
-    );
-    private static final int DEFAULT_LIMIT = 100;
+    // Limites por rota, no formato "MÉTODO /modelo/{param}=limite"
+    @ConfigProperty(name = "festival.rate-limit.regras")
+    List<String> regras;
 
-    @Override
-    public void filter(ContainerRequestContext requestContext) throws IOException {
-        String clientId = getClientId(requestContext);
-        String path = requestContext.getUriInfo().getPath();
-        int limit = ENDPOINT_LIMITS.getOrDefault(path, DEFAULT_LIMIT);
-
-        long now = Instant.now().toEpochMilli();
-        String key = clientId + ":" + path;
-        Window window = clientWindows.computeIfAbsent(key, k -> new Window());
-
-        synchronized (window) {
-            if (now - window.windowStart > WINDOW_MILLIS) {
-                window.count = 0;
-                window.windowStart = now;
-            }
-            window.count++;
-            if (window.count > limit) {
-                requestContext.abortWith(Response.status(429)
-                        .header(HEADER_LIMIT, limit)
-                        .header(HEADER_REMAINING, 0)
-                        .entity("{\"message\": \"Rate limit exceeded. Try again later.\"}")
-                        .build());
-                return;
+    @ConfigProperty(name = "festival.rate-limit.padrao", defaultValue = "100")
+    int defaultLimit;
+
+    // Nome do RateLimitBackend: "exato", "aproximado" ou "compartilhado"
+    @ConfigProperty(name = "festival.rate-limit.modo", defaultValue = "exato")
+    String modo;
+
+    @Inject
+    @Any
+    Instance<RateLimitBackend> backends;
+
+    private RateLimitBackend limitador;
+
+    private final ArvoreRotas<Integer> endpointLimits = new ArvoreRotas<>();
+
+    @PostConstruct
+    void iniciar() {
+        limitador = backends.select(NamedLiteral.of(modo)).get();
+
+        for (String regra : regras) {
+            int espaco = regra.indexOf(' ');
+            int igual = regra.lastIndexOf('=');
+            if (espaco < 0 || igual < espaco) {
+                throw new IllegalArgumentException("Regra de limite inválida: " + regra);
             }
+            endpointLimits.adicionar(regra.substring(0, espaco).trim(),
+                    regra.substring(espaco + 1, igual).trim(),
+                    Integer.parseInt(regra.substring(igual + 1).trim()));
         }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        // Rotas com parâmetros compartilham a cota do modelo, e não uma por id
+        ArvoreRotas.Correspondencia<Integer> regra = endpointLimits.buscar(requestContext.getMethod(), requestContext.getUriInfo().getPath());
+        int limit = regra != null ? regra.valor() : defaultLimit;
+        String route = regra != null ? regra.modelo() : DEFAULT_ROUTE;
+
+        RateLimitBackend.Decisao decisao = limitador.tentar(getClientId(requestContext), route, limit, WINDOW_NANOS);
+
+        // O filtro de resposta usa a cota calculada nesta decisão, não um novo acesso ao estado compartilhado
         requestContext.setProperty("rateLimit", limit);
-        requestContext.setProperty("rateLimitKey", key);
+        requestContext.setProperty("rateLimitRemaining", decisao.restantes());
+
+        if (!decisao.permitida()) {
+            requestContext.abortWith(Response.status(429)
+                    .header("Retry-After", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(decisao.esperaNanos() + 999_999_999)))
+                    .entity("{\"message\": \"Rate limit exceeded. Try again later.\"}")
+                    .build());
+        }
     }
 
     @Override
     public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
         Object limitObj = requestContext.getProperty("rateLimit");
-        Object keyObj = requestContext.getProperty("rateLimitKey");
-        int limit = DEFAULT_LIMIT;
-        String key = null;
+        Object remainingObj = requestContext.getProperty("rateLimitRemaining");
+        int limit = defaultLimit;
+        int remaining = limit;
 
         if (limitObj instanceof Integer) {
             limit = (Integer) limitObj;
+            remaining = limit;
         }
-        if (keyObj instanceof String) {
-            key = (String) keyObj;
+        if (remainingObj instanceof Integer) {
+            remaining = (Integer) remainingObj;
         }
 
-        int remaining = limit;
-        if (key != null) {
-            Window window = clientWindows.get(key);
-            if (window != null) {
-                remaining = Math.max(0, limit - window.count);
-            }
-        }
-
-        responseContext.getHeaders().add(HEADER_LIMIT, limit);
-        responseContext.getHeaders().add(HEADER_REMAINING, remaining);
+        responseContext.getHeaders().putSingle(HEADER_LIMIT, limit);
+        responseContext.getHeaders().putSingle(HEADER_REMAINING, remaining);
     }
 
     private String getClientId(ContainerRequestContext requestContext) {
@@ -101,9 +119,4 @@ public class RateLimitingFilter implements ContainerRequestFilter, ContainerResp
 
         return requestContext.getUriInfo().getRequestUri().getHost();
     }
-
-    private static class Window {
-        long windowStart = Instant.now().toEpochMilli();
-        int count = 0;
-    }
 }
@@ -0,0 +1,37 @@
+package org.acme;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Resposta gravada para uma chave de idempotência, na mesma transação da
+ * operação que a produziu. Permite responder retentativas depois de um
+ * restart ou vindas por outra instância.
+ */
+@Entity
+@Table(name = "registro_idempotencia", indexes = @Index(name = "idx_registro_idempotencia_expira_em", columnList = "expira_em"))
+public class RegistroIdempotencia extends PanacheEntityBase {
+
+    @Id
+    public String chave;
+
+    @Column(nullable = false)
+    public String impressao;
+
+    @Column(nullable = false)
+    public int status;
+
+    // Pares "nome: valor", um por linha
+    @Column(length = 2000)
+    public String cabecalhos;
+
+    @Lob
+    public byte[] corpo;
+
+    @Column(name = "criado_em", nullable = false)
+    public LocalDateTime criadoEm;
+
+    @Column(name = "expira_em", nullable = false)
+    public LocalDateTime expiraEm;
+}
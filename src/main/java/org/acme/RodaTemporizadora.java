@@ -0,0 +1,96 @@
+package org.acme;
+
+import java.util.Arrays;
+
+/**
+ * Roda de temporização (hashed timer wheel) para identificadores {@code long}.
+ *
+ * Cada entrada cai no slot do tick em que vence; avançar a roda só examina os
+ * slots dos ticks decorridos, então o custo de uma varredura não depende do
+ * total de entradas pendentes. As entradas ficam em arrays primitivos para
+ * suportar milhões de prazos sem um objeto por entrada.
+ */
+public class RodaTemporizadora {
+
+    private final long duracaoTickMillis;
+    private final Slot[] slots;
+    private final int mascara;
+    private long tickAtual;
+
+    private static final class Slot {
+        long[] ids = new long[8];
+        long[] ticks = new long[8];
+        int tamanho;
+
+        void adicionar(long id, long tick) {
+            if (tamanho == ids.length) {
+                ids = Arrays.copyOf(ids, tamanho * 2);
+                ticks = Arrays.copyOf(ticks, tamanho * 2);
+            }
+            ids[tamanho] = id;
+            ticks[tamanho] = tick;
+            tamanho++;
+        }
+    }
+
+    public RodaTemporizadora(long duracaoTickMillis, int numSlots, long agoraMillis) {
+        int n = Integer.highestOneBit(Math.max(2, numSlots));
+        this.duracaoTickMillis = Math.max(1, duracaoTickMillis);
+        this.slots = new Slot[n];
+        for (int i = 0; i < n; i++) {
+            slots[i] = new Slot();
+        }
+        this.mascara = n - 1;
+        this.tickAtual = agoraMillis / this.duracaoTickMillis;
+    }
+
+    /** Agenda o vencimento de {@code id} no instante {@code venceEmMillis}. */
+    public void agendar(long id, long venceEmMillis) {
+        long tick = (venceEmMillis + duracaoTickMillis - 1) / duracaoTickMillis;
+        synchronized (this) {
+            // Prazos já vencidos entram no próximo tick
+            tick = Math.max(tick, tickAtual + 1);
+            Slot slot = slots[(int) (tick & mascara)];
+            slot.adicionar(id, tick);
+        }
+    }
+
+    /**
+     * Avança a roda até {@code agoraMillis} e retorna os ids vencidos.
+     * Entradas de voltas futuras permanecem no slot.
+     */
+    public synchronized long[] avancar(long agoraMillis) {
+        long alvo = agoraMillis / duracaoTickMillis;
+        long[] vencidos = new long[0];
+        int total = 0;
+        // Mais de uma volta sem avançar: basta percorrer cada slot uma vez
+        long inicio = Math.max(tickAtual + 1, alvo - mascara);
+        for (long tick = inicio; tick <= alvo; tick++) {
+            Slot slot = slots[(int) (tick & mascara)];
+            int mantidos = 0;
+            for (int i = 0; i < slot.tamanho; i++) {
+                if (slot.ticks[i] <= alvo) {
+                    if (total == vencidos.length) {
+                        vencidos = Arrays.copyOf(vencidos, Math.max(16, total * 2));
+                    }
+                    vencidos[total++] = slot.ids[i];
+                } else {
+                    slot.ids[mantidos] = slot.ids[i];
+                    slot.ticks[mantidos] = slot.ticks[i];
+                    mantidos++;
+                }
+            }
+            slot.tamanho = mantidos;
+        }
+        tickAtual = Math.max(tickAtual, alvo);
+        return Arrays.copyOf(vencidos, total);
+    }
+
+    public synchronized long pendentes() {
+        long soma = 0;
+        for (Slot slot : slots) {
+            soma += slot.tamanho;
+        }
+        return soma;
+    }
+}
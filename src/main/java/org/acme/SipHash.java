@@ -0,0 +1,63 @@
+package org.acme;
+
+/**
+ * SipHash-2-4: hash de 64 bits com chave secreta de 128 bits.
+ *
+ * Sem conhecer a chave, um cliente não consegue montar entradas que caiam
+ * nas mesmas posições de uma tabela ou sketch, como acontece com
+ * {@link String#hashCode()}.
+ */
+public final class SipHash {
+
+    private SipHash() {
+    }
+
+    public static long hash(long k0, long k1, byte[] dados) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        int completos = dados.length & ~7;
+        for (int i = 0; i < completos; i += 8) {
+            long m = palavra(dados, i, 8);
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        // Último bloco: bytes restantes e o tamanho da mensagem no byte mais alto
+        long m = palavra(dados, completos, dados.length - completos) | ((long) dados.length << 56);
+        v3 ^= m;
+        for (int r = 0; r < 2; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= m;
+
+        v2 ^= 0xff;
+        for (int r = 0; r < 4; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    // Até 8 bytes a partir de inicio, little-endian
+    private static long palavra(byte[] dados, int inicio, int quantidade) {
+        long m = 0;
+        for (int i = 0; i < quantidade; i++) {
+            m |= (dados[inicio + i] & 0xffL) << (8 * i);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,46 @@
+package org.acme;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+import java.util.Set;
+
+@Path("/api/v1/sugestoes")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Sugestões", description = "Autocompletar de eventos, artistas e locais")
+public class SugestaoResource {
+
+    private static final Set<String> TIPOS = Set.of("evento", "artista", "local");
+    private static final int LIMITE_MAXIMO = 50;
+
+    @Inject
+    IndiceBusca indiceBusca;
+
+    @GET
+    @Operation(summary = "Sugestões para autocompletar", description = "Nomes de eventos e artistas e locais com uma palavra começando pelo texto digitado, sem diferenciar acentos e maiúsculas, dos mais vendidos para os menos. Não consulta o banco")
+    public Response sugerir(
+            @QueryParam("q") String q,
+            @QueryParam("tipo") String tipo,
+            @QueryParam("limite") @DefaultValue("10") int limite) {
+
+        if (tipo != null && !TIPOS.contains(tipo)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"Parâmetro tipo inválido: use evento, artista ou local\"}")
+                    .build();
+        }
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"message\": \"O limite deve estar entre 1 e " + LIMITE_MAXIMO + "\"}")
+                    .build();
+        }
+        if (q == null || q.isBlank()) {
+            return Response.ok(List.of()).build();
+        }
+        return Response.ok(indiceBusca.sugerir(q, tipo, limite)).build();
+    }
+}
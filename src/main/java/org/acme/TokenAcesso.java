@@ -0,0 +1,175 @@
+package org.acme;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens de acesso de curta duração assinados com HMAC-SHA256.
+ *
+ * Formato: {@code <kid>.<dados>.<assinatura>}, em Base64 URL. Os dados
+ * carregam id do usuário, tipo, expiração e um identificador aleatório
+ * (jti); validar um token é só recalcular o MAC, sem banco nem cache.
+ *
+ * A chave de assinatura muda a cada {@code festival.token.rotacao}: o kid é
+ * o número do período e a chave é derivada dele a partir do segredo mestre,
+ * então réplicas com o mesmo {@code festival.token.segredo} emitem e aceitam
+ * os mesmos tokens sem coordenação. Sem segredo configurado, um aleatório é
+ * gerado na inicialização (tokens não sobrevivem a um restart). Logouts vão
+ * para uma lista de revogação em memória, que só guarda cada jti até o token
+ * expirar.
+ */
+@ApplicationScoped
+public class TokenAcesso {
+
+    @ConfigProperty(name = "festival.token.segredo")
+    Optional<String> segredoConfigurado;
+
+    @ConfigProperty(name = "festival.token.ttl", defaultValue = "15m")
+    Duration ttl;
+
+    @ConfigProperty(name = "festival.token.rotacao", defaultValue = "1h")
+    Duration rotacao;
+
+    /** Conteúdo de um token válido. */
+    public record Dados(long usuarioId, Usuario.TipoUsuario tipo, long expiraEm, long jti) {
+    }
+
+    private static final int TAMANHO_DADOS = Long.BYTES + 1 + Long.BYTES + Long.BYTES;
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+    private static final Usuario.TipoUsuario[] TIPOS = Usuario.TipoUsuario.values();
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<Long, SecretKeySpec> chavesPorKid = new ConcurrentHashMap<>();
+    // jti revogado -> expiração do token (epoch em segundos)
+    private final Map<Long, Long> revogados = new ConcurrentHashMap<>();
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private byte[] segredo;
+
+    @PostConstruct
+    void iniciar() {
+        if (segredoConfigurado.isPresent() && !segredoConfigurado.get().isBlank()) {
+            segredo = segredoConfigurado.get().getBytes(StandardCharsets.UTF_8);
+        } else {
+            segredo = new byte[32];
+            random.nextBytes(segredo);
+        }
+    }
+
+    /** Token emitido e sua expiração (epoch em segundos). */
+    public record Emitido(String token, long expiraEm) {
+    }
+
+    /** Emite um token para o usuário, válido por {@code festival.token.ttl}. */
+    public Emitido emitir(Usuario usuario) {
+        long agora = Instant.now().getEpochSecond();
+        Dados dados = new Dados(usuario.id, usuario.tipo, agora + ttl.toSeconds(), random.nextLong());
+        long kid = kidEm(agora);
+
+        byte[] conteudo = ByteBuffer.allocate(TAMANHO_DADOS)
+                .putLong(dados.usuarioId())
+                .put((byte) dados.tipo().ordinal())
+                .putLong(dados.expiraEm())
+                .putLong(dados.jti())
+                .array();
+        String prefixo = kid + "." + BASE64.encodeToString(conteudo);
+        return new Emitido(prefixo + "." + BASE64.encodeToString(assinar(kid, prefixo)), dados.expiraEm());
+    }
+
+    /** Retorna os dados do token se a assinatura conferir e ele não estiver expirado nem revogado; senão null. */
+    public Dados verificar(String token) {
+        int ponto1 = token.indexOf('.');
+        int ponto2 = token.lastIndexOf('.');
+        if (ponto1 <= 0 || ponto2 <= ponto1) {
+            return null;
+        }
+        try {
+            long kid = Long.parseLong(token, 0, ponto1, 10);
+            long agora = Instant.now().getEpochSecond();
+            // Só chaves de períodos em que um token ainda válido pode ter sido emitido
+            if (kid > kidEm(agora) || kid < kidEm(agora - ttl.toSeconds())) {
+                return null;
+            }
+
+            String prefixo = token.substring(0, ponto2);
+            byte[] assinatura = BASE64_DECODER.decode(token.substring(ponto2 + 1));
+            if (!MessageDigest.isEqual(assinatura, assinar(kid, prefixo))) {
+                return null;
+            }
+
+            ByteBuffer conteudo = ByteBuffer.wrap(BASE64_DECODER.decode(token.substring(ponto1 + 1, ponto2)));
+            if (conteudo.remaining() != TAMANHO_DADOS) {
+                return null;
+            }
+            Dados dados = new Dados(conteudo.getLong(), TIPOS[conteudo.get()], conteudo.getLong(), conteudo.getLong());
+            if (dados.expiraEm() <= agora || revogados.containsKey(dados.jti())) {
+                return null;
+            }
+            return dados;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /** Revoga o token até a sua expiração (logout). */
+    public void revogar(Dados dados) {
+        revogados.put(dados.jti(), dados.expiraEm());
+    }
+
+    private long kidEm(long epochSegundos) {
+        return epochSegundos / rotacao.toSeconds();
+    }
+
+    private byte[] assinar(long kid, String prefixo) {
+        Mac mac = macs.get();
+        try {
+            mac.init(chavesPorKid.computeIfAbsent(kid, this::derivarChave));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return mac.doFinal(prefixo.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Chave do período = HMAC(segredo mestre, kid)
+    private SecretKeySpec derivarChave(long kid) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(segredo, "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(("kid:" + kid).getBytes(StandardCharsets.US_ASCII)), "HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Descarta chaves de períodos encerrados e revogações de tokens já expirados. */
+    @Scheduled(every = "1m")
+    void limpar() {
+        long agora = Instant.now().getEpochSecond();
+        long kidMinimo = kidEm(agora - ttl.toSeconds());
+        chavesPorKid.keySet().removeIf(kid -> kid < kidMinimo);
+        revogados.values().removeIf(expiraEm -> expiraEm <= agora);
+    }
+}
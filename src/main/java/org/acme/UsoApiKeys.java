@@ -0,0 +1,125 @@
+package org.acme;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Uso das API keys (total de requisições e último uso), acumulado em memória
+ * e gravado em lote.
+ *
+ * A autenticação só incrementa um contador; a cada
+ * {@code festival.api-key.uso.intervalo} os totais vão ao banco num batch
+ * JDBC de UPDATEs incrementais, então várias réplicas podem gravar na mesma
+ * chave sem se sobrescrever. Uma queda perde no máximo um intervalo de
+ * contagem, o que basta para planejamento de capacidade.
+ */
+@ApplicationScoped
+public class UsoApiKeys {
+
+    private static final Logger LOG = Logger.getLogger(UsoApiKeys.class);
+
+    private static final String UPDATE_USO =
+            "update api_key set total_requisicoes = total_requisicoes + ?, " +
+            "ultimo_uso = case when ultimo_uso is null or ultimo_uso < ? then ? else ultimo_uso end " +
+            "where id = ?";
+
+    @ConfigProperty(name = "festival.api-key.uso.lote", defaultValue = "500")
+    int tamanhoLote;
+
+    @Inject
+    DataSource dataSource;
+
+    static final class Uso {
+        final LongAdder requisicoes = new LongAdder();
+        volatile long ultimoUso;
+    }
+
+    private record Pendente(long apiKeyId, long requisicoes, long ultimoUso) {
+    }
+
+    private final Map<Long, Uso> usos = new ConcurrentHashMap<>();
+
+    /** Conta uma requisição autenticada pela chave. */
+    public void registrar(Long apiKeyId) {
+        // Dentro do compute, para a remoção das ociosas em gravar() não descartar o incremento
+        usos.compute(apiKeyId, (id, uso) -> {
+            Uso atual = uso == null ? new Uso() : uso;
+            atual.requisicoes.increment();
+            atual.ultimoUso = System.currentTimeMillis();
+            return atual;
+        });
+    }
+
+    @Scheduled(every = "${festival.api-key.uso.intervalo:30s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void gravar() {
+        List<Pendente> pendentes = new ArrayList<>();
+        for (Map.Entry<Long, Uso> entrada : usos.entrySet()) {
+            Uso uso = entrada.getValue();
+            long requisicoes = uso.requisicoes.sumThenReset();
+            if (requisicoes == 0) {
+                // Ociosa desde a última gravação; sai só se nenhum registrar() contou nela desde o reset
+                usos.computeIfPresent(entrada.getKey(), (id, atual) -> atual == uso && atual.requisicoes.sum() == 0 ? null : atual);
+                continue;
+            }
+            pendentes.add(new Pendente(entrada.getKey(), requisicoes, uso.ultimoUso));
+        }
+
+        for (int inicio = 0; inicio < pendentes.size(); inicio += tamanhoLote) {
+            List<Pendente> lote = pendentes.subList(inicio, Math.min(pendentes.size(), inicio + tamanhoLote));
+            try {
+                gravarNoBanco(lote);
+            } catch (SQLException e) {
+                LOG.errorf(e, "Erro ao gravar o uso de %d API keys; as contagens voltam para a próxima gravação", lote.size());
+                // Devolve as contagens para a próxima gravação
+                for (Pendente p : lote) {
+                    usos.compute(p.apiKeyId(), (id, uso) -> {
+                        Uso atual = uso == null ? new Uso() : uso;
+                        atual.requisicoes.add(p.requisicoes());
+                        return atual;
+                    });
+                }
+            }
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        gravar();
+    }
+
+    private void gravarNoBanco(List<Pendente> lote) throws SQLException {
+        try (Connection conexao = dataSource.getConnection()) {
+            conexao.setAutoCommit(false);
+            try (PreparedStatement update = conexao.prepareStatement(UPDATE_USO)) {
+                for (Pendente p : lote) {
+                    Timestamp ultimoUso = new Timestamp(p.ultimoUso());
+                    update.setLong(1, p.requisicoes());
+                    update.setTimestamp(2, ultimoUso);
+                    update.setTimestamp(3, ultimoUso);
+                    update.setLong(4, p.apiKeyId());
+                    update.addBatch();
+                }
+                update.executeBatch();
+                conexao.commit();
+            } catch (SQLException e) {
+                conexao.rollback();
+                throw e;
+            }
+        }
+    }
+}
@@ -5,7 +5,6 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
-import org.mindrot.jbcrypt.BCrypt;
 
 @Entity
 @Table(name = "usuario")
@@ -22,6 +21,10 @@ public class Usuario extends PanacheEntity {
 
     private String senha;
 
+    // Senha recebida em texto puro, até o HashSenha gerar o hash fora da thread da requisição
+    @Transient
+    private String senhaPendente;
+
     @Enumerated(EnumType.STRING)
     public TipoUsuario tipo = TipoUsuario.CLIENTE;
 
@@ -34,6 +37,7 @@ public class Usuario extends PanacheEntity {
     // Construtores
     public Usuario() {}
 
+    // A senha fica pendente: aplicarHashSenha(hashSenha.gerarHash(...)) antes de persistir, senão a gravação falha
     public Usuario(String nome, String email, String senha) {
         this.nome = nome;
         this.email = email;
@@ -50,16 +54,28 @@ public class Usuario extends PanacheEntity {
     public String getSenha() { return senha; }
     public void setSenha(String senha) {
         if (senha != null && !senha.trim().isEmpty()) {
-            this.senha = BCrypt.hashpw(senha, BCrypt.gensalt());
+            this.senhaPendente = senha;
         }
     }
 
+    // Fora do JSON: o Jackson só expõe getters públicos
+    String getSenhaPendente() { return senhaPendente; }
+
+    public void aplicarHashSenha(String hash) {
+        this.senha = hash;
+        this.senhaPendente = null;
+    }
+
     public TipoUsuario getTipo() { return tipo; }
     public void setTipo(TipoUsuario tipo) { this.tipo = tipo; }
 
-    // Método para verificar senha
-    public boolean verificarSenha(String senha) {
-        return BCrypt.checkpw(senha, this.senha);
+    // Senha em texto puro nunca vai para o banco
+    @PrePersist
+    @PreUpdate
+    void conferirSenhaPendente() {
+        if (senhaPendente != null) {
+            throw new IllegalStateException("Senha do usuário sem hash; use HashSenha.gerarHash antes de gravar");
+        }
     }
 
     // Método estático para buscar por email
@@ -1,5 +1,7 @@
 package org.acme;
 
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
@@ -24,6 +26,12 @@ import java.util.stream.Collectors;
 @Tag(name = "Usuários", description = "Gerenciamento de usuários")
 public class UsuarioResource {
 
+    @Inject
+    ApiKeyCache apiKeyCache;
+
+    @Inject
+    HashSenha hashSenha;
+
     // Classe interna original para respostas (sem alterações)
     public static class UsuarioResponse {
         public Long id;
@@ -55,6 +63,11 @@ public class UsuarioResource {
     @Operation(summary = "Criar usuário", description = "Cria um novo usuário no sistema")
     @Transactional
     public Response criarUsuario(@Valid Usuario usuario) {
+        // O hash roda no pool do HashSenha antes da primeira consulta, sem segurar conexão do banco
+        if (usuario.getSenhaPendente() != null) {
+            usuario.aplicarHashSenha(hashSenha.gerarHash(usuario.getSenhaPendente()));
+        }
+
         // Verificar se email já existe
         if (Usuario.findByEmail(usuario.email) != null) {
             return Response.status(Response.Status.CONFLICT)
@@ -67,7 +80,6 @@ public class UsuarioResource {
             usuario.tipo = Usuario.TipoUsuario.CLIENTE;
         }
 
-        // A senha é hasheada automaticamente pelo setSenha da entidade Usuario
         usuario.persist();
         return Response.created(URI.create("/api/v1/usuarios/" + usuario.id))
                 .entity(new UsuarioResponse(usuario))
@@ -122,8 +134,10 @@ public class UsuarioResource {
         if (request.nome != null && !request.nome.isBlank()) {
             entity.nome = request.nome;
         }
-        if (request.tipo != null) {
+        if (request.tipo != null && request.tipo != entity.tipo) {
             entity.tipo = request.tipo;
+            // As chaves em cache guardam o tipo do dono
+            apiKeyCache.invalidarUsuario(entity.id);
         }
 
         // Persiste as alterações (embora o @Transactional possa fazer isso automaticamente)
@@ -143,8 +157,11 @@ public class UsuarioResource {
         }
 
         // 1. Revogar API keys associadas
-        List<ApiKey> keys = ApiKey.find("usuario.id", id).list();
+        List<ApiKey> keys = ApiKey.find("usuario.id", id).withLock(LockModeType.PESSIMISTIC_WRITE).list();
         for (ApiKey key : keys) {
+            if (key.status == ApiKey.StatusApiKey.ATIVA) {
+                apiKeyCache.revogar(key.chave);
+            }
             key.status = ApiKey.StatusApiKey.REVOGADA;
             // O @Transactional deve persistir a mudança no status da key
         }
@@ -0,0 +1,55 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+
+@QuarkusTest
+class ApiKeyCacheTest {
+
+    private static final String API_KEY = "demo_key_123456";
+
+    @Inject
+    ApiKeyCache apiKeyCache;
+
+    @Test
+    void testChaveCriadaForaDaInstanciaPassaAposLeituraDasNovas() {
+        // Como se outra instância tivesse gerado a chave: vai direto ao banco, sem passar pelo filtro local
+        String chave = "externa_" + System.nanoTime();
+        Long id = QuarkusTransaction.requiringNew().call(() -> {
+            ApiKey apiKey = new ApiKey(chave, Usuario.findById(1L));
+            apiKey.persist();
+            return apiKey.id;
+        });
+        try {
+            // Sem esperar a remontagem completa do filtro
+            apiKeyCache.incluirNovas();
+            given().header("X-API-Key", chave).when().get("/api/v1/eventos").then().statusCode(200);
+        } finally {
+            QuarkusTransaction.requiringNew().run(() -> ApiKey.deleteById(id));
+        }
+    }
+
+    @Test
+    void testChaveRevogadaERecusadaAntesDaRemontagem() {
+        ExtractableResponse<Response> gerada = given().header("X-API-Key", API_KEY).contentType("application/json")
+                .when().post("/api/v1/apikeys/generate/1")
+                .then().statusCode(201)
+                .extract();
+        String chave = gerada.path("chave");
+        Integer id = gerada.path("id");
+
+        given().header("X-API-Key", chave).when().get("/api/v1/eventos").then().statusCode(200);
+        given().header("X-API-Key", API_KEY).when().delete("/api/v1/apikeys/" + id).then().statusCode(204);
+        // Ainda no filtro, mas recusada pelo cache e pelo banco
+        given().header("X-API-Key", chave).when().get("/api/v1/eventos").then().statusCode(401);
+
+        apiKeyCache.montarFiltro();
+        given().header("X-API-Key", chave).when().get("/api/v1/eventos").then().statusCode(401);
+    }
+}
@@ -0,0 +1,68 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ArvoreRotasTest {
+
+    private final ArvoreRotas<Integer> arvore = new ArvoreRotas<>();
+
+    private String modelo(String metodo, String caminho) {
+        ArvoreRotas.Correspondencia<Integer> correspondencia = arvore.buscar(metodo, caminho);
+        return correspondencia == null ? null : correspondencia.modelo();
+    }
+
+    @Test
+    void testLiteralTemPrecedenciaSobreParametro() {
+        arvore.adicionar("GET", "/api/v1/eventos/{id}", 1);
+        arvore.adicionar("GET", "/api/v1/eventos/busca", 2);
+
+        assertEquals(2, arvore.buscar("GET", "/api/v1/eventos/busca").valor());
+        assertEquals(1, arvore.buscar("GET", "/api/v1/eventos/42").valor());
+        assertEquals("GET /api/v1/eventos/{id}", modelo("GET", "/api/v1/eventos/42"));
+    }
+
+    @Test
+    void testVoltaParaOParametroQuandoOLiteralNaoTermina() {
+        arvore.adicionar("GET", "/api/v1/eventos/busca", 1);
+        arvore.adicionar("GET", "/api/v1/eventos/{id}/ingressos", 2);
+
+        // "busca" casa com o literal, mas só o parâmetro tem "ingressos" depois
+        assertEquals("GET /api/v1/eventos/{id}/ingressos", modelo("GET", "/api/v1/eventos/busca/ingressos"));
+        assertNull(arvore.buscar("GET", "/api/v1/eventos/busca/artistas"));
+    }
+
+    @Test
+    void testVoltaParaOParametroQuandoOLiteralNaoTemOMetodo() {
+        arvore.adicionar("GET", "/api/v1/eventos/busca", 1);
+        arvore.adicionar("POST", "/api/v1/eventos/{id}", 2);
+
+        assertEquals(2, arvore.buscar("POST", "/api/v1/eventos/busca").valor());
+        assertNull(arvore.buscar("DELETE", "/api/v1/eventos/busca"));
+    }
+
+    @Test
+    void testMetodoEspecificoAntesDoCuringa() {
+        arvore.adicionar("*", "/api/v1/ingressos", 1);
+        arvore.adicionar("post", "/api/v1/ingressos", 2);
+
+        assertEquals(2, arvore.buscar("POST", "/api/v1/ingressos").valor());
+        assertEquals("POST /api/v1/ingressos", modelo("POST", "/api/v1/ingressos"));
+        assertEquals(1, arvore.buscar("GET", "/api/v1/ingressos").valor());
+        assertEquals("* /api/v1/ingressos", modelo("DELETE", "/api/v1/ingressos"));
+    }
+
+    @Test
+    void testBarrasRepetidasEFinaisSaoIgnoradas() {
+        arvore.adicionar("GET", "/api/v1/eventos/{id}", 1);
+        arvore.adicionar("GET", "api/v1//artistas/", 2);
+
+        assertEquals(1, arvore.buscar("GET", "//api/v1/eventos//7/").valor());
+        assertEquals(1, arvore.buscar("GET", "api/v1/eventos/7").valor());
+        assertEquals(2, arvore.buscar("GET", "/api/v1/artistas").valor());
+        assertNull(arvore.buscar("GET", "/api/v1/eventos"));
+        assertNull(arvore.buscar("GET", "/"));
+    }
+}
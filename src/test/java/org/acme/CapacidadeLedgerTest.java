@@ -0,0 +1,143 @@
+package org.acme;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CapacidadeLedgerTest {
+
+    private static final long EVENTO = 1L;
+
+    private CapacidadeLedger ledger;
+    // Estado do "banco": capacidade do evento e lugares vendidos já confirmados
+    private int capacidade = 10;
+    private long vendidos;
+    private final List<Synchronization> sincronizacoes = new ArrayList<>();
+    private int statusTransacao = Status.STATUS_ACTIVE;
+
+    @BeforeEach
+    void criar() {
+        ledger = new CapacidadeLedger();
+        ledger.limiarListras = 10_000;
+        ledger.blocoListras = 64;
+        ledger.em = (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{EntityManager.class},
+                (proxy, metodo, args) -> {
+                    if (!metodo.getName().equals("createQuery")) {
+                        throw new UnsupportedOperationException(metodo.getName());
+                    }
+                    return consulta((String) args[0]);
+                });
+        ledger.txRegistry = (TransactionSynchronizationRegistry) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{TransactionSynchronizationRegistry.class}, (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "getTransactionStatus" -> statusTransacao;
+                    case "registerInterposedSynchronization" -> {
+                        sincronizacoes.add((Synchronization) args[0]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    private TypedQuery<?> consulta(String hql) {
+        return (TypedQuery<?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TypedQuery.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "setParameter" -> proxy;
+                    case "getResultList" -> hql.contains("group by")
+                            ? List.<Object[]>of(new Object[]{EVENTO, vendidos})
+                            : List.<Object[]>of(new Object[]{EVENTO, capacidade});
+                    case "getResultStream" -> Stream.of(capacidade);
+                    case "getSingleResult" -> vendidos;
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    // Conclui as transações registradas até aqui, como o gerenciador faria
+    private void concluir(int status) {
+        List<Synchronization> pendentes = new ArrayList<>(sincronizacoes);
+        sincronizacoes.clear();
+        if (status == Status.STATUS_COMMITTED) {
+            pendentes.forEach(Synchronization::beforeCompletion);
+        }
+        pendentes.forEach(s -> s.afterCompletion(status));
+    }
+
+    @Test
+    void testReservaSoConfirmaNoCommit() {
+        assertEquals(CapacidadeLedger.Reserva.RESERVADO, ledger.reservar(EVENTO, 4));
+        assertEquals(6, ledger.disponivel(EVENTO));
+        concluir(Status.STATUS_ROLLEDBACK);
+        assertEquals(10, ledger.disponivel(EVENTO));
+
+        assertEquals(CapacidadeLedger.Reserva.ESGOTOU, ledger.reservar(EVENTO, 10));
+        assertEquals(CapacidadeLedger.Reserva.INSUFICIENTE, ledger.reservar(EVENTO, 1));
+        concluir(Status.STATUS_COMMITTED);
+        vendidos = 10;
+        ledger.reconciliar();
+        assertEquals(0, ledger.disponivel(EVENTO));
+    }
+
+    @Test
+    void testReconciliacaoIgnoraEventoComCommitEmAndamento() {
+        assertEquals(CapacidadeLedger.Reserva.RESERVADO, ledger.reservar(EVENTO, 4));
+
+        // O commit já chegou ao banco, mas os pendentes só são baixados depois dele
+        Synchronization compra = sincronizacoes.remove(0);
+        compra.beforeCompletion();
+        vendidos = 4;
+        ledger.reconciliar();
+        // Contar a compra no banco e nos pendentes ao mesmo tempo deixaria o saldo em 2
+        assertEquals(6, ledger.disponivel(EVENTO));
+
+        compra.afterCompletion(Status.STATUS_COMMITTED);
+        ledger.reconciliar();
+        assertEquals(6, ledger.disponivel(EVENTO));
+    }
+
+    @Test
+    void testReconciliacaoCorrigeOSaldoQuandoNadaEstaEmAndamento() {
+        statusTransacao = Status.STATUS_NO_TRANSACTION;
+        assertEquals(CapacidadeLedger.Reserva.RESERVADO, ledger.reservar(EVENTO, 3));
+
+        // Vendas de outra réplica
+        vendidos = 8;
+        ledger.reconciliar();
+        assertEquals(2, ledger.disponivel(EVENTO));
+
+        // Capacidade aumentada por outra réplica
+        capacidade = 20;
+        ledger.reconciliar();
+        assertEquals(12, ledger.disponivel(EVENTO));
+    }
+
+    @Test
+    void testReconciliacaoIgnoraEventoComGravacaoDoDiarioEmAndamento() {
+        statusTransacao = Status.STATUS_NO_TRANSACTION;
+        ledger.reservar(EVENTO, 2);
+        ledger.reterAteGravar(EVENTO, 2);
+        // Ainda no diário: o banco não tem a compra, os pendentes a seguram
+        ledger.reconciliar();
+        assertEquals(8, ledger.disponivel(EVENTO));
+
+        Map<Long, CapacidadeLedger.Saldo> gravando = ledger.gravando(Set.of(EVENTO));
+        vendidos = 2;
+        ledger.reconciliar();
+        assertEquals(8, ledger.disponivel(EVENTO));
+
+        ledger.gravado(gravando, Map.of(EVENTO, 2), true);
+        ledger.reconciliar();
+        assertEquals(8, ledger.disponivel(EVENTO));
+    }
+}
@@ -0,0 +1,147 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CapacidadeListradaTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void testReservaERecusaPelaSomaDeTodasAsListras() {
+        CapacidadeListrada capacidade = new CapacidadeListrada(10, 4, 8);
+        assertTrue(capacidade.reservar(6));
+        assertTrue(capacidade.reservar(4));
+        assertFalse(capacidade.reservar(1));
+        assertEquals(0, capacidade.total());
+        assertTrue(capacidade.marcarSeEsgotado());
+        assertFalse(capacidade.marcarSeEsgotado());
+
+        capacidade.liberar(3);
+        assertEquals(3, capacidade.total());
+        assertFalse(capacidade.marcarSeEsgotado());
+        assertTrue(capacidade.reservar(3));
+    }
+
+    @Test
+    void testAjusteNegativoFicaComoDebito() {
+        CapacidadeListrada capacidade = new CapacidadeListrada(5, 2, 2);
+        capacidade.ajustar(-7);
+        assertEquals(-2, capacidade.total());
+        assertFalse(capacidade.reservar(1));
+        capacidade.ajustar(3);
+        assertTrue(capacidade.reservar(1));
+        assertEquals(0, capacidade.total());
+    }
+
+    @Test
+    void testConcorrenciaNaoVendeAlemDaCapacidade() throws Exception {
+        long capacidadeTotal = 100_000;
+        CapacidadeListrada capacidade = new CapacidadeListrada(capacidadeTotal, THREADS, 64);
+        AtomicLong vendidos = new AtomicLong();
+
+        executarEmParalelo(() -> {
+            while (capacidade.reservar(3)) {
+                vendidos.addAndGet(3);
+            }
+            while (capacidade.reservar(1)) {
+                vendidos.incrementAndGet();
+            }
+        });
+
+        assertEquals(capacidadeTotal, vendidos.get());
+        assertEquals(0, capacidade.total());
+        assertTrue(capacidade.marcarSeEsgotado());
+    }
+
+    @Test
+    void testConcorrenciaSemRecusaNemEsgotadoFalsos() throws Exception {
+        // Metade das threads reserva e a outra metade devolve os mesmos lugares, então as cotas
+        // mudam de listra o tempo todo. Sempre sobra lugar: nada pode ser recusado nem esgotar
+        int emMaos = 64;
+        BlockingQueue<Integer> reservados = new ArrayBlockingQueue<>(emMaos);
+        CapacidadeListrada capacidade = new CapacidadeListrada(emMaos * 3L + THREADS * 3L + 1, THREADS, 2);
+        AtomicBoolean recusada = new AtomicBoolean();
+        AtomicBoolean esgotou = new AtomicBoolean();
+        AtomicBoolean parar = new AtomicBoolean();
+        AtomicInteger indices = new AtomicInteger();
+
+        Thread vigia = new Thread(() -> {
+            while (!parar.get()) {
+                if (capacidade.marcarSeEsgotado()) {
+                    esgotou.set(true);
+                }
+            }
+        });
+        vigia.start();
+        try {
+            executarEmParalelo(() -> {
+                boolean reservadora = indices.getAndIncrement() % 2 == 0;
+                try {
+                    for (int i = 0; i < 50_000 && !recusada.get(); i++) {
+                        if (reservadora) {
+                            int quantidade = 1 + i % 3;
+                            if (!capacidade.reservar(quantidade)) {
+                                recusada.set(true);
+                                return;
+                            }
+                            reservados.put(quantidade);
+                        } else {
+                            Integer quantidade = reservados.poll(1, TimeUnit.SECONDS);
+                            if (quantidade != null) {
+                                capacidade.liberar(quantidade);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } finally {
+            parar.set(true);
+            vigia.join();
+        }
+        reservados.forEach(capacidade::liberar);
+
+        assertFalse(recusada.get(), "reserva recusada com lugares livres");
+        assertFalse(esgotou.get(), "marcado como esgotado com lugares livres");
+        assertEquals(emMaos * 3L + THREADS * 3L + 1, capacidade.total());
+    }
+
+    private static void executarEmParalelo(Runnable tarefa) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    tarefa.run();
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.acme;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContagemCacheTest {
+
+    private ContagemCache contagemCache;
+    private final List<Integer> tabela = new ArrayList<>();
+    private int contagens;
+    // Executado durante a consulta da página, como uma escrita concorrente a ela
+    private Runnable duranteAConsulta = () -> { };
+
+    @BeforeEach
+    void criar() {
+        contagemCache = new ContagemCache();
+        contagemCache.modoPadrao = "exato";
+        contagemCache.maxEntradas = 100;
+        contagemCache.ttl = Duration.ofMinutes(5);
+        contagemCache.registry = new SimpleMeterRegistry();
+        contagemCache.txRegistry = (TransactionSynchronizationRegistry) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{TransactionSynchronizationRegistry.class}, (proxy, metodo, args) -> {
+                    if (metodo.getName().equals("getTransactionStatus")) {
+                        return Status.STATUS_NO_TRANSACTION;
+                    }
+                    throw new UnsupportedOperationException(metodo.getName());
+                });
+        contagemCache.iniciar();
+        for (int i = 0; i < 25; i++) {
+            tabela.add(i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private PanacheQuery<Integer> consulta() {
+        int[] intervalo = new int[2];
+        return (PanacheQuery<Integer>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PanacheQuery.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "page" -> {
+                        intervalo[0] = (Integer) args[0] * (Integer) args[1];
+                        intervalo[1] = intervalo[0] + (Integer) args[1] - 1;
+                        yield proxy;
+                    }
+                    case "range" -> {
+                        intervalo[0] = (Integer) args[0];
+                        intervalo[1] = (Integer) args[1];
+                        yield proxy;
+                    }
+                    case "list" -> {
+                        duranteAConsulta.run();
+                        yield new ArrayList<>(tabela.subList(Math.min(intervalo[0], tabela.size()),
+                                Math.min(intervalo[1] + 1, tabela.size())));
+                    }
+                    case "count" -> {
+                        contagens++;
+                        yield (long) tabela.size();
+                    }
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    private PageResponse<Integer> paginar(int page, String modo) {
+        return contagemCache.paginar(Evento.class, consulta(), "filtro", Map.of("p", 1), page, 10, modo, Function.identity());
+    }
+
+    @Test
+    void testExatoContaACadaPagina() {
+        PageResponse<Integer> pagina = paginar(0, null);
+        assertEquals(25L, pagina.totalElements);
+        assertEquals(10, pagina.content.size());
+        paginar(1, "exato");
+        assertEquals(2, contagens);
+    }
+
+    @Test
+    void testCacheContaUmaVezPorGeracao() {
+        assertEquals(25L, paginar(0, "cache").totalElements);
+        assertEquals(25L, paginar(1, "cache").totalElements);
+        assertEquals(1, contagens);
+
+        tabela.add(25);
+        contagemCache.invalidar(Evento.class);
+        assertEquals(26L, paginar(0, "cache").totalElements);
+        assertEquals(2, contagens);
+    }
+
+    @Test
+    void testEstimadoUsaAUltimaPaginaSemContar() {
+        PageResponse<Integer> primeira = paginar(0, "estimado");
+        assertFalse(primeira.totalExato);
+        assertEquals(11L, primeira.totalElements);
+        assertTrue(primeira.hasNext);
+
+        PageResponse<Integer> ultima = paginar(2, "estimado");
+        assertTrue(ultima.totalExato);
+        assertEquals(25L, ultima.totalElements);
+
+        // O total revelado pela última página vale para as outras
+        PageResponse<Integer> depois = paginar(0, "estimado");
+        assertTrue(depois.totalExato);
+        assertEquals(25L, depois.totalElements);
+        assertEquals(0, contagens);
+    }
+
+    @Test
+    void testEstimadoNaoGuardaTotalDeUmaEscritaConcorrente() {
+        // A página lê a tabela com 25 linhas enquanto uma escrita muda a geração
+        duranteAConsulta = () -> {
+            contagemCache.invalidar(Evento.class);
+            duranteAConsulta = () -> { };
+        };
+        assertEquals(25L, paginar(2, "estimado").totalElements);
+        tabela.add(25);
+
+        // A geração nova não pode servir o total lido antes da escrita
+        PageResponse<Integer> seguinte = paginar(0, "estimado");
+        assertFalse(seguinte.totalExato);
+        assertEquals(26L, paginar(2, "estimado").totalElements);
+    }
+
+    @Test
+    void testNenhumSoInformaSeHaProxima() {
+        PageResponse<Integer> pagina = paginar(0, "nenhum");
+        assertNull(pagina.totalElements);
+        assertTrue(pagina.hasNext);
+        assertFalse(paginar(2, "nenhum").hasNext);
+        assertEquals(0, contagens);
+    }
+
+    @Test
+    void testModoInvalido() {
+        assertThrows(BadRequestException.class, () -> paginar(0, "aproximado"));
+    }
+}
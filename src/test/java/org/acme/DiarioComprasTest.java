@@ -0,0 +1,192 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.QuarkusTransactionException;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@TestProfile(DiarioComprasTest.DiarioAtivo.class)
+class DiarioComprasTest {
+
+    // Cabe pouco mais de uma dezena de registros, para o arquivo recomeçar durante o teste
+    private static final int TAMANHO = 2048;
+
+    public static class DiarioAtivo implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            try {
+                Path diretorio = Files.createTempDirectory("diario-compras");
+                return Map.of(
+                        "festival.journal.enabled", "true",
+                        "festival.journal.arquivo", diretorio.resolve("compras.journal").toString(),
+                        "festival.journal.tamanho", String.valueOf(TAMANHO),
+                        // O teste decide quando o gravador roda
+                        "festival.journal.intervalo", "1h");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Inject
+    DiarioCompras diarioCompras;
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    ContagemCache contagemCache;
+
+    @ConfigProperty(name = "festival.journal.arquivo")
+    String arquivo;
+
+    private Long eventoId;
+
+    @BeforeEach
+    void criarEvento() {
+        eventoId = QuarkusTransaction.requiringNew().call(() -> {
+            Evento evento = new Evento();
+            evento.nome = "Evento do diário";
+            evento.dataEvento = LocalDate.now().plusDays(30);
+            evento.local = "Local de teste";
+            evento.capacidadeMaxima = 1000;
+            evento.precoIngresso = 50.0;
+            evento.persist();
+            return evento.id;
+        });
+    }
+
+    @AfterEach
+    void removerEvento() {
+        diarioCompras.gravarPendentes();
+        QuarkusTransaction.requiringNew().run(() -> {
+            Ingresso.delete("evento.id", eventoId);
+            Evento.deleteById(eventoId);
+        });
+    }
+
+    @Test
+    void testReaplicaSoComprasConfirmadas() throws Exception {
+        Long confirmada = registrar(false);
+        Long desfeita = registrar(true);
+        assertNotNull(confirmada);
+        assertNotNull(desfeita);
+
+        // Retrato do arquivo antes da gravação em segundo plano, como numa queda do processo
+        Path copia = copiarDiario();
+        diarioCompras.gravarPendentes();
+        assertTrue(existe(confirmada));
+        assertFalse(existe(desfeita));
+
+        QuarkusTransaction.requiringNew().run(() -> Ingresso.deleteById(confirmada));
+        reaplicar(copia);
+
+        assertTrue(existe(confirmada));
+        assertFalse(existe(desfeita), "compra desfeita reaplicada do diário");
+    }
+
+    @Test
+    void testArquivoSoRecomecaDepoisDeTudoGravado() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = registrar(false)) != null) {
+            ids.add(id);
+        }
+        assertFalse(ids.isEmpty());
+
+        // Cheio e com registros não gravados: a compra segue pelo caminho normal
+        assertNull(registrar(false));
+        diarioCompras.gravarPendentes();
+        ids.forEach(i -> assertTrue(existe(i)));
+
+        Long depoisDoReinicio = registrar(false);
+        assertNotNull(depoisDoReinicio, "o arquivo deveria recomeçar do início");
+
+        // Na nova geração, só o registro novo é reaplicado
+        reaplicar(copiarDiario());
+        assertTrue(existe(depoisDoReinicio));
+        assertEquals(ids.size() + 1, contarIngressos());
+        // Deixa a gravação em segundo plano para o diário do teste
+        QuarkusTransaction.requiringNew().run(() -> Ingresso.deleteById(depoisDoReinicio));
+    }
+
+    // Registra uma compra no diário numa transação própria; null se o diário recusou
+    private Long registrar(boolean desfazer) {
+        Long[] id = new Long[1];
+        Runnable compra = () -> {
+            Ingresso ingresso = new Ingresso();
+            ingresso.nomeComprador = "Comprador do diário";
+            ingresso.emailComprador = "diario@teste.com";
+            ingresso.quantidade = 1;
+            ingresso.evento = Evento.findById(eventoId);
+            ingresso.dataCompra = LocalDateTime.now();
+            ingresso.precoTotal = 50.0;
+            ingresso.status = Ingresso.StatusIngresso.RESERVADO;
+            if (diarioCompras.registrar(ingresso)) {
+                id[0] = ingresso.id;
+            }
+            if (desfazer) {
+                QuarkusTransaction.setRollbackOnly();
+            }
+        };
+        try {
+            QuarkusTransaction.requiringNew().run(compra);
+        } catch (QuarkusTransactionException e) {
+            if (!desfazer) {
+                throw e;
+            }
+        }
+        return id[0];
+    }
+
+    private Path copiarDiario() throws IOException {
+        Path copia = Files.createTempFile("compras", ".journal");
+        Files.copy(Path.of(arquivo), copia, StandardCopyOption.REPLACE_EXISTING);
+        return copia;
+    }
+
+    // Sobe um segundo diário sobre a cópia, como na inicialização depois de uma queda
+    private void reaplicar(Path copia) throws IOException {
+        DiarioCompras reinicio = new DiarioCompras();
+        reinicio.ativo = true;
+        reinicio.arquivo = copia.toString();
+        reinicio.tamanhoArquivo = TAMANHO;
+        reinicio.tamanhoLote = 500;
+        reinicio.dataSource = dataSource;
+        reinicio.contagemCache = contagemCache;
+        reinicio.onStart(null);
+        reinicio.onStop(null);
+    }
+
+    private boolean existe(Long id) {
+        return QuarkusTransaction.requiringNew().call(() -> Ingresso.findById(id) != null);
+    }
+
+    private long contarIngressos() {
+        return QuarkusTransaction.requiringNew().call(() -> Ingresso.count("evento.id", eventoId));
+    }
+}
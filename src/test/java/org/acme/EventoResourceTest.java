@@ -0,0 +1,110 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@TestProfile(EventoResourceTest.SemTarefasAgendadas.class)
+class EventoResourceTest {
+
+    private static final String API_KEY = "demo_key_123456";
+
+    // As estatísticas do Hibernate são globais: um job agendado rodando durante a requisição somaria comandos
+    public static class SemTarefasAgendadas implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("quarkus.scheduler.enabled", "false");
+        }
+    }
+
+    @Inject
+    EntityManagerFactory emf;
+
+    private final List<Long> criados = new ArrayList<>();
+
+    @AfterEach
+    void removerEventos() {
+        QuarkusTransaction.requiringNew().run(() -> criados.forEach(id -> Evento.deleteById(id)));
+        criados.clear();
+    }
+
+    @Test
+    void testListagemCarregaArtistasEmUmaConsulta() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            List<Artista> artistas = Artista.list("id in ?1", List.of(1L, 2L));
+            for (int i = 0; i < 100; i++) {
+                Evento evento = new Evento();
+                evento.nome = "Evento de teste " + i;
+                evento.dataEvento = LocalDate.now().plusDays(30);
+                evento.local = "Local de teste";
+                evento.capacidadeMaxima = 100;
+                evento.precoIngresso = 50.0;
+                evento.artistas = new ArrayList<>(artistas);
+                evento.persist();
+                criados.add(evento.id);
+            }
+        });
+
+        // A primeira requisição carrega a API key no cache
+        given().header("X-API-Key", API_KEY).when().get("/api/v1/eventos").then().statusCode(200);
+
+        Statistics estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+
+        given()
+          .header("X-API-Key", API_KEY)
+          .queryParam("size", 100)
+          .queryParam("total", "nenhum")
+          .when().get("/api/v1/eventos")
+          .then()
+             .statusCode(200)
+             .body("content.size()", is(100));
+
+        // Uma consulta para a página e uma para os artistas de todos os eventos
+        assertEquals(2, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void testPaginacaoPorCursorPercorreTodosOsEventos() {
+        List<Long> esperados = QuarkusTransaction.requiringNew().call(() ->
+                Evento.<Evento>list("order by nome desc, id desc").stream().map(e -> e.id).toList());
+
+        List<Long> percorridos = new ArrayList<>();
+        String cursor = "";
+        do {
+            ExtractableResponse<Response> pagina = given()
+                    .header("X-API-Key", API_KEY)
+                    .queryParam("cursor", cursor)
+                    .queryParam("size", 3)
+                    .queryParam("sort", "nome")
+                    .queryParam("direction", "desc")
+                    .when().get("/api/v1/eventos")
+                    .then()
+                    .statusCode(200)
+                    .extract();
+            percorridos.addAll(pagina.<List<Number>>path("content.id").stream().map(Number::longValue).toList());
+            cursor = pagina.path("nextCursor");
+        } while (cursor != null);
+
+        assertEquals(esperados, percorridos);
+    }
+}
@@ -0,0 +1,91 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+class ExpiracaoReservasTest {
+
+    @Inject
+    ExpiracaoReservas expiracaoReservas;
+
+    @Inject
+    CapacidadeLedger capacidadeLedger;
+
+    private Long eventoId;
+
+    @AfterEach
+    void removerEvento() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            Ingresso.delete("evento.id", eventoId);
+            Evento.deleteById(eventoId);
+        });
+    }
+
+    @Test
+    void testDevolveSoOsLugaresDasReservasVencidas() throws InterruptedException {
+        LocalDateTime vencida = LocalDateTime.now().minusMinutes(1);
+        long[] ids = QuarkusTransaction.requiringNew().call(() -> {
+            Evento evento = new Evento();
+            evento.nome = "Evento da expiração";
+            evento.dataEvento = LocalDate.now().plusDays(30);
+            evento.local = "Local de teste";
+            evento.capacidadeMaxima = 3;
+            evento.precoIngresso = 50.0;
+            evento.status = Evento.StatusEvento.ESGOTADO;
+            evento.persist();
+            eventoId = evento.id;
+            return new long[]{
+                    ingresso(evento, 2, Ingresso.StatusIngresso.RESERVADO, vencida),
+                    // Paga depois do agendamento: continua na roda, mas não pode ser cancelada
+                    ingresso(evento, 1, Ingresso.StatusIngresso.PAGO, vencida)};
+        });
+        assertEquals(0, capacidadeLedger.disponivel(eventoId));
+
+        expiracaoReservas.agendar(ids[0], vencida);
+        expiracaoReservas.agendar(ids[1], vencida);
+        // O próximo tick agendado processa os dois
+        aguardar(() -> capacidadeLedger.disponivel(eventoId) > 0);
+
+        assertEquals(Ingresso.StatusIngresso.CANCELADO, status(ids[0]));
+        assertEquals(Ingresso.StatusIngresso.PAGO, status(ids[1]));
+        assertEquals(2, capacidadeLedger.disponivel(eventoId));
+        assertEquals(Evento.StatusEvento.DISPONIVEL,
+                QuarkusTransaction.requiringNew().call(() -> Evento.<Evento>findById(eventoId).status));
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicao.getAsBoolean() && System.nanoTime() < limite) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private static long ingresso(Evento evento, int quantidade, Ingresso.StatusIngresso status, LocalDateTime expiraEm) {
+        Ingresso ingresso = new Ingresso();
+        ingresso.nomeComprador = "Comprador da expiração";
+        ingresso.emailComprador = "expiracao@teste.com";
+        ingresso.quantidade = quantidade;
+        ingresso.evento = evento;
+        ingresso.dataCompra = LocalDateTime.now();
+        ingresso.precoTotal = quantidade * 50.0;
+        ingresso.status = status;
+        ingresso.expiraEm = expiraEm;
+        ingresso.persist();
+        return ingresso.id;
+    }
+
+    private static Ingresso.StatusIngresso status(long id) {
+        return QuarkusTransaction.requiringNew().call(() -> Ingresso.<Ingresso>findById(id).status);
+    }
+}
@@ -0,0 +1,64 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FiltroBloomTest {
+
+    @Test
+    void testSemFalsosNegativos() {
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filtro.adicionar("chave-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filtro.talvezContenha("chave-" + i));
+        }
+        assertEquals(10_000, filtro.elementos());
+    }
+
+    @Test
+    void testTaxaDeFalsosPositivosNaCapacidade() {
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filtro.adicionar("chave-" + i);
+        }
+        int falsos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtro.talvezContenha("ausente-" + i)) {
+                falsos++;
+            }
+        }
+        // Margem sobre o 1% pedido para a variação da amostra
+        assertTrue(falsos < 2_000, "falsos positivos: " + falsos);
+        assertTrue(filtro.taxaFalsoPositivoEstimada() < 0.02);
+    }
+
+    @Test
+    void testRemocaoMantemOsDemais() {
+        FiltroBloom filtro = new FiltroBloom(1_000, 0.001);
+        filtro.adicionar("a");
+        filtro.adicionar("b");
+        filtro.remover("a");
+        assertFalse(filtro.talvezContenha("a"));
+        assertTrue(filtro.talvezContenha("b"));
+        assertEquals(1, filtro.elementos());
+    }
+
+    @Test
+    void testContadorSaturadoNaoGeraFalsoNegativo() {
+        // Filtro mínimo: poucos contadores, que saturam com as repetições
+        FiltroBloom filtro = new FiltroBloom(1, 0.5);
+        for (int i = 0; i < 20; i++) {
+            filtro.adicionar("a");
+        }
+        filtro.adicionar("b");
+        for (int i = 0; i < 20; i++) {
+            filtro.remover("a");
+        }
+        assertTrue(filtro.talvezContenha("b"));
+    }
+}
@@ -0,0 +1,169 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@TestProfile(IdempotencyStoreTest.EsperaCurta.class)
+class IdempotencyStoreTest {
+
+    public static class EsperaCurta implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("festival.idempotencia.espera", "1s");
+        }
+    }
+
+    @Inject
+    IdempotencyStore store;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<String> chaves = new ArrayList<>();
+
+    @AfterEach
+    void limpar() {
+        executor.shutdownNow();
+        QuarkusTransaction.requiringNew().run(() -> RegistroIdempotencia.delete("chave in ?1", chaves));
+    }
+
+    private String chave() {
+        String chave = "teste-" + UUID.randomUUID();
+        chaves.add(chave);
+        return chave;
+    }
+
+    private static Response criado(int id) {
+        return Response.status(Response.Status.CREATED).header("Location", "/api/v1/ingressos/" + id).entity(Map.of("id", id)).build();
+    }
+
+    private static String corpo(Response resposta) {
+        return String.valueOf(((RawValue) resposta.getEntity()).rawValue());
+    }
+
+    // Operação que só termina quando o teste libera, para as demais chegarem com ela em andamento
+    private Supplier<Response> bloqueada(CountDownLatch iniciou, CountDownLatch liberar, AtomicInteger execucoes) {
+        return () -> {
+            execucoes.incrementAndGet();
+            iniciou.countDown();
+            try {
+                liberar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return criado(7);
+        };
+    }
+
+    @Test
+    void testRequisicoesSimultaneasExecutamUmaVez() throws Exception {
+        String chave = chave();
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        Future<Response> lider = executor.submit(() -> store.executar(chave, "a", bloqueada(iniciou, liberar, execucoes)));
+        assertTrue(iniciou.await(10, TimeUnit.SECONDS));
+        List<Future<Response>> seguidores = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            seguidores.add(executor.submit(() -> store.executar(chave, "a", () -> {
+                execucoes.incrementAndGet();
+                return criado(8);
+            })));
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+        liberar.countDown();
+
+        assertEquals(201, lider.get(10, TimeUnit.SECONDS).getStatus());
+        for (Future<Response> seguidor : seguidores) {
+            Response resposta = seguidor.get(10, TimeUnit.SECONDS);
+            assertEquals(201, resposta.getStatus());
+            assertEquals("/api/v1/ingressos/7", resposta.getHeaderString("Location"));
+            assertEquals("{\"id\":7}", corpo(resposta));
+        }
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testSeguidorDesisteDepoisDaEspera() throws Exception {
+        String chave = chave();
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        Future<Response> lider = executor.submit(() -> store.executar(chave, "a", bloqueada(iniciou, liberar, execucoes)));
+        assertTrue(iniciou.await(10, TimeUnit.SECONDS));
+        try {
+            Response resposta = store.executar(chave, "a", () -> criado(8));
+            assertEquals(409, resposta.getStatus());
+            assertEquals("1", resposta.getHeaderString("Retry-After"));
+        } finally {
+            liberar.countDown();
+        }
+        assertEquals(201, lider.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testChaveReutilizadaComOutraRequisicao() throws Exception {
+        String chave = chave();
+        CountDownLatch iniciou = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        Future<Response> lider = executor.submit(() -> store.executar(chave, "a", bloqueada(iniciou, liberar, execucoes)));
+        assertTrue(iniciou.await(10, TimeUnit.SECONDS));
+        try {
+            // Em andamento
+            assertEquals(422, store.executar(chave, "b", () -> criado(8)).getStatus());
+        } finally {
+            liberar.countDown();
+        }
+        assertEquals(201, lider.get(10, TimeUnit.SECONDS).getStatus());
+
+        // Já concluída
+        assertEquals(422, store.executar(chave, "b", () -> criado(8)).getStatus());
+        assertEquals(201, store.executar(chave, "a", () -> criado(8)).getStatus());
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testRespostaGravadaPorOutraInstanciaVemDoBanco() {
+        String chave = chave();
+        // Como a operação faria na sua transação, sem passar pelo cache desta instância
+        QuarkusTransaction.requiringNew().run(() -> store.gravar(chave, "a", criado(9)));
+
+        AtomicInteger execucoes = new AtomicInteger();
+        Response resposta = store.executar(chave, "a", () -> {
+            execucoes.incrementAndGet();
+            return criado(10);
+        });
+        assertEquals(0, execucoes.get());
+        assertEquals(201, resposta.getStatus());
+        assertEquals("/api/v1/ingressos/9", resposta.getHeaderString("Location"));
+        assertEquals("{\"id\":9}", corpo(resposta));
+
+        assertEquals(422, store.executar(chave, "b", () -> criado(10)).getStatus());
+    }
+}
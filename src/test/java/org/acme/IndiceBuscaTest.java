@@ -0,0 +1,170 @@
+package org.acme;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@QuarkusTest
+class IndiceBuscaTest {
+
+    private static final String API_KEY = "demo_key_123456";
+    // Fora da faixa da sequência, para não colidir com os eventos criados pelo Hibernate
+    private static final long FORA_DO_HIBERNATE = 900_001L;
+
+    @Inject
+    IndiceBusca indiceBusca;
+
+    @Inject
+    EntityManager em;
+
+    @AfterEach
+    void limpar() {
+        List<Long> criados = IndiceBusca.ids(indiceBusca.buscarEventos("xilofone"));
+        QuarkusTransaction.requiringNew().run(() -> {
+            // Uma a uma, para as sugestões acompanharem a remoção
+            criados.forEach(id -> {
+                Ingresso.delete("evento.id", id);
+                Evento.deleteById(id);
+            });
+            em.createNativeQuery("delete from evento where id = ?1").setParameter(1, FORA_DO_HIBERNATE).executeUpdate();
+        });
+        indiceBusca.remontar();
+    }
+
+    @Test
+    void testBuscaOrdenaPorRelevancia() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            persistir("Festival do Parque", "Xilofone Hall", "Sem destaque");
+            persistir("Xilofone Sinfônico", "Teatro Municipal", null);
+            persistir("Festival de Inverno", "Arena", "Com um xilofone na abertura");
+        });
+
+        given()
+          .header("X-API-Key", API_KEY)
+          .queryParam("q", "xilofone")
+          .when().get("/api/v1/eventos/busca")
+          .then()
+             .statusCode(200)
+             .body("totalElements", is(3))
+             // Nome pesa mais que local, que pesa mais que descrição
+             .body("content.nome", is(List.of("Xilofone Sinfônico", "Festival do Parque", "Festival de Inverno")));
+    }
+
+    @Test
+    void testRemontagemTrazEscritasFeitasForaDoHibernate() {
+        QuarkusTransaction.requiringNew().run(() -> em.createNativeQuery(
+                        "insert into evento (id, nome, data_evento, local, capacidade_maxima, preco_ingresso, status, versao)"
+                                + " values (?1, 'Xilofone Externo', ?2, 'Arena', 100, 50.0, 'DISPONIVEL', 0)")
+                .setParameter(1, FORA_DO_HIBERNATE)
+                .setParameter(2, LocalDate.now().plusDays(30))
+                .executeUpdate());
+        assertEquals(List.of(), IndiceBusca.ids(indiceBusca.buscarEventos("xilofone")));
+
+        indiceBusca.remontar();
+        assertEquals(List.of(FORA_DO_HIBERNATE), IndiceBusca.ids(indiceBusca.buscarEventos("xilofone")));
+        assertEquals(List.of("Xilofone Externo"), eventos());
+
+        given()
+          .header("X-API-Key", API_KEY)
+          .queryParam("nome", "xilofone")
+          .queryParam("local", "arena")
+          .when().get("/api/v1/eventos/search")
+          .then()
+             .statusCode(200)
+             .body("content.id", is(List.of((int) FORA_DO_HIBERNATE)));
+
+        // A remontagem também tira as sugestões de quem sumiu do banco
+        QuarkusTransaction.requiringNew().run(() -> em.createNativeQuery("delete from evento where id = ?1")
+                .setParameter(1, FORA_DO_HIBERNATE)
+                .executeUpdate());
+        indiceBusca.remontar();
+        assertEquals(List.of(), eventos());
+    }
+
+    @Test
+    void testFiltrosDeTextoSaoCruzadosELimitados() {
+        IndiceBusca indice = new IndiceBusca();
+        indice.maxIds = 2;
+        List<IndiceTextual.Resultado> nome = List.of(new IndiceTextual.Resultado(3, 2.0), new IndiceTextual.Resultado(1, 1.0));
+        List<IndiceTextual.Resultado> local = List.of(new IndiceTextual.Resultado(1, 2.0), new IndiceTextual.Resultado(2, 1.0));
+
+        assertEquals(List.of(1L), indice.idsEmTodos(List.of(nome, local)));
+        assertEquals(List.of(3L, 1L), indice.idsEmTodos(List.of(nome)));
+        assertEquals(List.of(), indice.idsEmTodos(List.of()));
+
+        List<IndiceTextual.Resultado> amplo = List.of(new IndiceTextual.Resultado(1, 3.0),
+                new IndiceTextual.Resultado(2, 2.0), new IndiceTextual.Resultado(3, 1.0));
+        assertThrows(BadRequestException.class, () -> indice.idsEmTodos(List.of(amplo)));
+        // O cruzamento vem antes do limite
+        assertEquals(List.of(1L, 3L), indice.idsEmTodos(List.of(amplo, nome)));
+    }
+
+    @Test
+    void testSugestaoDeLocalSomaOsEventosDele() {
+        List<Long> ids = List.of(
+                QuarkusTransaction.requiringNew().call(() -> persistir("Festival Um", "Xilofone Arena", null)),
+                QuarkusTransaction.requiringNew().call(() -> persistir("Festival Dois", "XILOFONE arena", null)));
+        // Locais que diferem só em maiúsculas viram uma sugestão só, com o texto do último
+        assertEquals(List.of("XILOFONE arena"), locais());
+
+        QuarkusTransaction.requiringNew().run(() -> {
+            Ingresso ingresso = new Ingresso();
+            ingresso.nomeComprador = "Comprador";
+            ingresso.emailComprador = "comprador@teste.com";
+            ingresso.quantidade = 3;
+            ingresso.evento = Evento.findById(ids.get(0));
+            ingresso.dataCompra = LocalDateTime.now();
+            ingresso.precoTotal = 150.0;
+            ingresso.status = Ingresso.StatusIngresso.RESERVADO;
+            ingresso.persist();
+        });
+        indiceBusca.recontarPopularidade();
+        assertEquals(List.of(3L), pesosDosLocais());
+
+        // O evento leva as vendas para o local novo
+        QuarkusTransaction.requiringNew().run(() -> Evento.<Evento>findById(ids.get(0)).local = "Xilofone Teatro");
+        assertEquals(List.of("Xilofone Teatro", "XILOFONE arena"), locais());
+        assertEquals(List.of(3L, 0L), pesosDosLocais());
+
+        // Sem eventos, o local sai das sugestões
+        QuarkusTransaction.requiringNew().run(() -> Evento.deleteById(ids.get(1)));
+        assertEquals(List.of("Xilofone Teatro"), locais());
+    }
+
+    private List<String> eventos() {
+        return indiceBusca.sugerir("xilofone", "evento", 10).stream().map(IndicePrefixos.Sugestao::texto).toList();
+    }
+
+    private List<String> locais() {
+        return indiceBusca.sugerir("xilofone", "local", 10).stream().map(IndicePrefixos.Sugestao::texto).toList();
+    }
+
+    private List<Long> pesosDosLocais() {
+        return indiceBusca.sugerir("xilofone", "local", 10).stream().map(IndicePrefixos.Sugestao::peso).toList();
+    }
+
+    private static Long persistir(String nome, String local, String descricao) {
+        Evento evento = new Evento();
+        evento.nome = nome;
+        evento.local = local;
+        evento.descricao = descricao;
+        evento.dataEvento = LocalDate.now().plusDays(30);
+        evento.capacidadeMaxima = 100;
+        evento.precoIngresso = 50.0;
+        evento.persist();
+        return evento.id;
+    }
+}
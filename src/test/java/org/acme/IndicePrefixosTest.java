@@ -0,0 +1,112 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndicePrefixosTest {
+
+    private final IndicePrefixos indice = new IndicePrefixos();
+
+    private List<String> textos(String prefixo, String tipo, int limite) {
+        return indice.sugerir(prefixo, tipo, limite).stream().map(IndicePrefixos.Sugestao::texto).toList();
+    }
+
+    private void colocar(String tipo, long id, String texto, long peso) {
+        indice.colocar(tipo + ":" + id, new IndicePrefixos.Sugestao(tipo, id, texto, peso));
+    }
+
+    @Test
+    void testCasaComOInicioDeQualquerPalavra() {
+        colocar("evento", 1, "Rock in Rio", 0);
+        colocar("evento", 2, "Festival de Verão", 0);
+
+        assertEquals(List.of("Rock in Rio"), textos("roc", null, 10));
+        assertEquals(List.of("Rock in Rio"), textos("rio", null, 10));
+        assertEquals(List.of("Rock in Rio"), textos("IN R", null, 10));
+        assertEquals(List.of("Festival de Verão"), textos("verao", null, 10));
+        assertEquals(List.of(), textos("ock", null, 10));
+        assertEquals(List.of(), textos(" ", null, 10));
+    }
+
+    @Test
+    void testMaisPesadasPrimeiroAteOLimite() {
+        colocar("evento", 1, "Festival A", 10);
+        colocar("evento", 2, "Festival B", 30);
+        colocar("evento", 3, "Festival C", 20);
+        colocar("evento", 4, "Festival D", 20);
+
+        assertEquals(List.of("Festival B", "Festival C", "Festival D"), textos("fest", null, 3));
+        assertEquals(List.of(), textos("fest", null, 0));
+    }
+
+    @Test
+    void testUmaSugestaoPorChaveMesmoComPalavrasRepetidas() {
+        colocar("evento", 1, "Rio Rio Rio", 0);
+
+        assertEquals(List.of("Rio Rio Rio"), textos("rio", null, 10));
+        assertEquals(1, indice.tamanho());
+    }
+
+    @Test
+    void testFiltraPorTipo() {
+        colocar("evento", 1, "Coldplay ao vivo", 5);
+        colocar("artista", 1, "Coldplay", 1);
+
+        assertEquals(List.of("Coldplay ao vivo", "Coldplay"), textos("cold", null, 10));
+        assertEquals(List.of("Coldplay"), textos("cold", "artista", 10));
+    }
+
+    @Test
+    void testAlterarPesarERemover() {
+        colocar("evento", 1, "Rock in Rio", 1);
+        colocar("evento", 2, "Rock na Praia", 2);
+
+        colocar("evento", 1, "Lollapalooza", 1);
+        assertEquals(List.of("Rock na Praia"), textos("rock", null, 10));
+        assertEquals(List.of("Lollapalooza"), textos("lolla", null, 10));
+
+        indice.pesar("evento:1", 5);
+        indice.pesar("evento:9", 5);
+        assertEquals(5, indice.sugerir("lolla", null, 1).get(0).peso());
+        assertEquals(2, indice.tamanho());
+
+        indice.remover("evento:2");
+        indice.remover("evento:2");
+        assertEquals(List.of(), textos("rock", null, 10));
+        assertEquals(1, indice.tamanho());
+    }
+
+    @Test
+    void testTopoDoPrefixoCurtoAcompanhaAsEscritas() {
+        colocar("evento", 1, "Festival A", 10);
+        colocar("artista", 2, "Fernanda", 20);
+        assertEquals(List.of("Fernanda", "Festival A"), textos("fe", null, 10));
+        assertEquals(List.of("Festival A"), textos("fe", "evento", 10));
+
+        colocar("evento", 3, "Feira", 30);
+        assertEquals(List.of("Feira", "Fernanda", "Festival A"), textos("fe", null, 10));
+        assertEquals(List.of("Feira"), textos("fe", null, 1));
+
+        indice.pesar("evento:1", 40);
+        assertEquals(List.of("Festival A", "Feira"), textos("fe", "evento", 10));
+
+        colocar("evento", 3, "Rock", 30);
+        indice.remover("artista:2");
+        assertEquals(List.of("Festival A"), textos("fe", null, 10));
+        assertEquals(List.of("Rock"), textos("r", null, 10));
+    }
+
+    @Test
+    void testLimiteAcimaDoTopoVarreOIntervalo() {
+        for (int i = 0; i <= IndicePrefixos.TOPO; i++) {
+            colocar("evento", i, "Show " + i, i);
+        }
+
+        assertEquals(IndicePrefixos.TOPO, textos("sh", null, IndicePrefixos.TOPO).size());
+        assertEquals(IndicePrefixos.TOPO + 1, textos("sh", null, IndicePrefixos.TOPO + 1).size());
+        assertEquals(List.of("Show 50", "Show 49"), textos("sh", null, 2));
+    }
+}
@@ -0,0 +1,123 @@
+package org.acme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceTextualTest {
+
+    private IndiceTextual indice;
+
+    @BeforeEach
+    void criar() {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        pesos.put("nome", 3);
+        pesos.put("local", 2);
+        pesos.put("descricao", 1);
+        indice = new IndiceTextual(pesos);
+    }
+
+    private void indexar(long id, String nome, String local, String descricao) {
+        Map<String, String> textos = new LinkedHashMap<>();
+        textos.put("nome", nome);
+        textos.put("local", local);
+        textos.put("descricao", descricao);
+        indice.indexar(id, textos);
+    }
+
+    private List<Long> ids(String consulta, String... campos) {
+        return IndiceBusca.ids(indice.buscar(consulta, List.of(campos)));
+    }
+
+    @Test
+    void testTermosSemAcentosEMinusculos() {
+        assertEquals(List.of("sao", "paulo", "rock", "n", "roll"), IndiceTextual.termos("São  PAULO - Rock'n'Roll"));
+        assertTrue(IndiceTextual.termos("  ").isEmpty());
+        assertTrue(IndiceTextual.termos(null).isEmpty());
+    }
+
+    @Test
+    void testCasaPorPrefixoSemDiferenciarAcentos() {
+        indexar(1, "Coldplay ao vivo", "Estádio do Morumbi", null);
+        indexar(2, "Festival de Verão", "Praia", null);
+
+        assertEquals(List.of(1L), ids("cold"));
+        assertEquals(List.of(1L), ids("ESTADIO"));
+        assertEquals(List.of(2L), ids("verão"));
+        assertEquals(List.of(), ids("play"));
+        assertEquals(List.of(), ids("!!!"));
+    }
+
+    @Test
+    void testTodosOsTermosPrecisamCasar() {
+        indexar(1, "Rock in Rio", "Parque Olímpico", null);
+        indexar(2, "Rock na Praia", "Copacabana", null);
+
+        assertEquals(List.of(1L, 2L), ids("rock"));
+        assertEquals(List.of(1L), ids("rock rio"));
+        assertEquals(List.of(), ids("rock jazz"));
+    }
+
+    @Test
+    void testPesoDoCampoDefineARelevancia() {
+        indexar(1, "Noite de jazz", "Teatro", null);
+        indexar(2, "Festival", "Jazz Club", null);
+        indexar(3, "Festival", "Teatro", "Muito jazz a noite toda");
+
+        assertEquals(List.of(1L, 2L, 3L), ids("jazz"));
+    }
+
+    @Test
+    void testTermoExatoVemAntesDoPrefixo() {
+        indexar(1, "Rockstar", "Arena", null);
+        indexar(2, "Rock", "Arena", null);
+
+        assertEquals(List.of(2L, 1L), ids("rock"));
+    }
+
+    @Test
+    void testTermoRaroPesaMais() {
+        indexar(1, "Festival de rock", "Arena", null);
+        indexar(2, "Festival de samba", "Arena", null);
+        indexar(3, "Festival de forró", "Arena", null);
+
+        // "festival" está em todos; "samba" só no 2
+        List<IndiceTextual.Resultado> resultados = indice.buscar("festival samba", List.of());
+        assertEquals(1, resultados.size());
+        assertTrue(resultados.get(0).pontuacao() > indice.buscar("festival", List.of()).get(0).pontuacao());
+    }
+
+    @Test
+    void testBuscaSoNosCamposPedidos() {
+        indexar(1, "Copacabana Fest", "Arena", null);
+        indexar(2, "Festival", "Praia de Copacabana", null);
+
+        assertEquals(List.of(1L, 2L), ids("copacabana"));
+        assertEquals(List.of(1L), ids("copacabana", "nome"));
+        assertEquals(List.of(2L), ids("copacabana", "local"));
+    }
+
+    @Test
+    void testReindexarERemover() {
+        indexar(1, "Rock in Rio", "Parque Olímpico", null);
+        assertEquals(1, indice.documentos());
+
+        indexar(1, "Lollapalooza", "Interlagos", null);
+        assertEquals(List.of(), ids("rock"));
+        assertEquals(List.of(1L), ids("lolla"));
+        assertEquals(1, indice.documentos());
+        assertEquals(2, indice.termos());
+
+        indice.remover(1);
+        indice.remover(1);
+        assertEquals(List.of(), ids("lolla"));
+        assertEquals(0, indice.documentos());
+        assertEquals(0, indice.termos());
+    }
+}
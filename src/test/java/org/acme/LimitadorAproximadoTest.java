@@ -0,0 +1,65 @@
+package org.acme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorAproximadoTest {
+
+    private static final long MINUTO = TimeUnit.MINUTES.toNanos(1);
+
+    private LimitadorAproximado limitador;
+
+    @BeforeEach
+    void criar() {
+        limitador = new LimitadorAproximado();
+        limitador.erro = 0.001;
+        limitador.confianca = 0.01;
+        limitador.tamanhoTop = 10;
+        limitador.iniciar();
+    }
+
+    @Test
+    void testBloqueiaAoAtingirOLimite() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limitador.tentar("cliente", "/rota", 3, MINUTO).permitida());
+        }
+        RateLimitBackend.Decisao recusada = limitador.tentar("cliente", "/rota", 3, MINUTO);
+        assertFalse(recusada.permitida());
+        assertTrue(recusada.esperaNanos() > 0);
+        assertEquals("cliente", limitador.resumo().maisBloqueados().get(0).cliente());
+        assertEquals(3, limitador.resumo().requisicoesNaJanela());
+    }
+
+    @Test
+    void testClientesComMesmoHashCodeNaoColidem() {
+        // "Aa" e "BB" têm o mesmo String.hashCode()
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertTrue(limitador.tentar("Aa", "/rota", 1, MINUTO).permitida());
+        assertFalse(limitador.tentar("Aa", "/rota", 1, MINUTO).permitida());
+        assertTrue(limitador.tentar("BB", "/rota", 1, MINUTO).permitida());
+    }
+
+    @Test
+    void testSeparacaoEntreClienteERota() {
+        assertTrue(limitador.tentar("ab", "c", 1, MINUTO).permitida());
+        assertTrue(limitador.tentar("a", "bc", 1, MINUTO).permitida());
+    }
+
+    @Test
+    void testContagemRecomecaDepoisDeDuasJanelas() throws InterruptedException {
+        long janela = TimeUnit.MILLISECONDS.toNanos(50);
+        for (int rodada = 0; rodada < 3; rodada++) {
+            assertTrue(limitador.tentar("cliente", "/rota", 1, janela).permitida());
+            assertFalse(limitador.tentar("cliente", "/rota", 1, janela).permitida());
+            // Com duas janelas inteiras sem tráfego, atual e anterior chegam zeradas
+            TimeUnit.NANOSECONDS.sleep(2 * janela + TimeUnit.MILLISECONDS.toNanos(5));
+            limitador.prepararReserva();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorTaxaTest {
+
+    private static final long MINUTO = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void testRajadaAteOLimiteEDepoisRecusa() {
+        LimitadorTaxa limitador = new LimitadorTaxa();
+        for (int i = 0; i < 5; i++) {
+            RateLimitBackend.Decisao decisao = limitador.tentar("cliente", "/rota", 5, MINUTO);
+            assertTrue(decisao.permitida());
+            assertEquals(4 - i, decisao.restantes());
+        }
+
+        RateLimitBackend.Decisao recusada = limitador.tentar("cliente", "/rota", 5, MINUTO);
+        assertFalse(recusada.permitida());
+        assertEquals(0, recusada.restantes());
+        // A próxima vaga abre um intervalo de emissão (janela / limite) depois da primeira requisição
+        assertTrue(recusada.esperaNanos() > 0 && recusada.esperaNanos() <= MINUTO / 5);
+    }
+
+    @Test
+    void testClientesERotasTemCotasSeparadas() {
+        LimitadorTaxa limitador = new LimitadorTaxa();
+        assertTrue(limitador.tentar("a", "/rota", 1, MINUTO).permitida());
+        assertFalse(limitador.tentar("a", "/rota", 1, MINUTO).permitida());
+
+        assertTrue(limitador.tentar("b", "/rota", 1, MINUTO).permitida());
+        assertTrue(limitador.tentar("a", "/outra", 1, MINUTO).permitida());
+    }
+
+    @Test
+    void testVagaReabreAposOIntervaloDeEmissao() throws InterruptedException {
+        LimitadorTaxa limitador = new LimitadorTaxa();
+        long janela = TimeUnit.MILLISECONDS.toNanos(200);
+        assertTrue(limitador.tentar("cliente", "/rota", 2, janela).permitida());
+        assertTrue(limitador.tentar("cliente", "/rota", 2, janela).permitida());
+        RateLimitBackend.Decisao recusada = limitador.tentar("cliente", "/rota", 2, janela);
+        assertFalse(recusada.permitida());
+
+        TimeUnit.NANOSECONDS.sleep(recusada.esperaNanos() + TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(limitador.tentar("cliente", "/rota", 2, janela).permitida());
+        assertFalse(limitador.tentar("cliente", "/rota", 2, janela).permitida());
+    }
+
+    @Test
+    void testDespejoNaoAlteraAsDecisoes() {
+        LimitadorTaxa limitador = new LimitadorTaxa();
+        assertTrue(limitador.tentar("cliente", "/rota", 1, MINUTO).permitida());
+        // A chave ainda tem TAT no futuro, então não é ociosa e continua bloqueada
+        limitador.despejarOciosas();
+        assertFalse(limitador.tentar("cliente", "/rota", 1, MINUTO).permitida());
+    }
+}
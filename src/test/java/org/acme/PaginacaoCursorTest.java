@@ -0,0 +1,140 @@
+package org.acme;
+
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import jakarta.ws.rs.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaginacaoCursorTest {
+
+    private static final Map<String, PaginacaoCursor.Campo<Evento>> ORDENAVEIS = PaginacaoCursor.campos(
+            new PaginacaoCursor.Campo<>("id", Long.class, e -> e.id),
+            new PaginacaoCursor.Campo<>("nome", String.class, e -> e.nome),
+            new PaginacaoCursor.Campo<>("dataEvento", LocalDate.class, e -> e.dataEvento),
+            new PaginacaoCursor.Campo<>("status", Evento.StatusEvento.class, e -> e.status));
+
+    /** Consulta falsa: guarda o HQL e os parâmetros recebidos e devolve as linhas dadas. */
+    private static class ConsultaFalsa implements BiFunction<String, Map<String, Object>, PanacheQuery<Evento>> {
+        final List<Evento> linhas;
+        String hql;
+        Map<String, Object> params;
+        int inicio = -1;
+        int fim = -1;
+
+        ConsultaFalsa(List<Evento> linhas) {
+            this.linhas = linhas;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public PanacheQuery<Evento> apply(String hql, Map<String, Object> params) {
+            this.hql = hql;
+            this.params = new HashMap<>(params);
+            return (PanacheQuery<Evento>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PanacheQuery.class},
+                    (proxy, metodo, args) -> switch (metodo.getName()) {
+                        case "withHint" -> proxy;
+                        case "range" -> {
+                            inicio = (Integer) args[0];
+                            fim = (Integer) args[1];
+                            yield proxy;
+                        }
+                        case "list" -> linhas;
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    });
+        }
+    }
+
+    private static Evento evento(long id, String nome) {
+        Evento evento = new Evento();
+        evento.id = id;
+        evento.nome = nome;
+        evento.dataEvento = LocalDate.of(2026, 1, 1).plusDays(id);
+        return evento;
+    }
+
+    private static List<Evento> eventos(int quantidade) {
+        List<Evento> eventos = new ArrayList<>();
+        for (int i = 1; i <= quantidade; i++) {
+            eventos.add(evento(i, "Evento " + i));
+        }
+        return eventos;
+    }
+
+    @Test
+    void testPrimeiraPaginaBuscaUmaLinhaAMais() {
+        ConsultaFalsa consulta = new ConsultaFalsa(eventos(4));
+        PaginacaoCursor.Pagina<Evento> pagina = PaginacaoCursor.buscar(consulta, ORDENAVEIS,
+                List.of("local = :local"), Map.of("local", "Arena"), "nome", "asc", 3, "");
+
+        assertEquals("WHERE local = :local ORDER BY nome asc, id asc", consulta.hql);
+        assertEquals(0, consulta.inicio);
+        assertEquals(3, consulta.fim);
+        assertEquals(3, pagina.itens().size());
+        assertEquals(3L, pagina.itens().get(2).id);
+    }
+
+    @Test
+    void testCursorContinuaDepoisDoUltimoItem() {
+        PaginacaoCursor.Pagina<Evento> primeira = PaginacaoCursor.buscar(new ConsultaFalsa(eventos(4)), ORDENAVEIS,
+                List.of(), Map.of(), "nome", "desc", 3, null);
+
+        ConsultaFalsa consulta = new ConsultaFalsa(List.of(evento(4, "Evento 4")));
+        PaginacaoCursor.Pagina<Evento> segunda = PaginacaoCursor.buscar(consulta, ORDENAVEIS,
+                List.of(), Map.of(), "nome", "desc", 3, primeira.proximoCursor());
+
+        assertEquals("WHERE (nome < :cursorValor or (nome = :cursorValor and id < :cursorId)) ORDER BY nome desc, id desc",
+                consulta.hql);
+        assertEquals("Evento 3", consulta.params.get("cursorValor"));
+        assertEquals(3L, consulta.params.get("cursorId"));
+        assertEquals(1, segunda.itens().size());
+        assertNull(segunda.proximoCursor());
+    }
+
+    @Test
+    void testCursorPorIdETiposConvertidos() {
+        ConsultaFalsa porId = new ConsultaFalsa(eventos(3));
+        String cursor = PaginacaoCursor.buscar(porId, ORDENAVEIS, List.of(), Map.of(), "id", "asc", 2, "").proximoCursor();
+        ConsultaFalsa seguinte = new ConsultaFalsa(List.of());
+        PaginacaoCursor.buscar(seguinte, ORDENAVEIS, List.of(), Map.of(), "id", "asc", 2, cursor);
+        assertEquals("WHERE id > :cursorId ORDER BY id asc", seguinte.hql);
+        assertEquals(2L, seguinte.params.get("cursorId"));
+
+        cursor = PaginacaoCursor.buscar(new ConsultaFalsa(eventos(3)), ORDENAVEIS, List.of(), Map.of(), "dataEvento", "asc", 2, "")
+                .proximoCursor();
+        PaginacaoCursor.buscar(seguinte, ORDENAVEIS, List.of(), Map.of(), "dataEvento", "asc", 2, cursor);
+        assertEquals(LocalDate.of(2026, 1, 3), seguinte.params.get("cursorValor"));
+
+        cursor = PaginacaoCursor.buscar(new ConsultaFalsa(eventos(3)), ORDENAVEIS, List.of(), Map.of(), "status", "asc", 2, "")
+                .proximoCursor();
+        PaginacaoCursor.buscar(seguinte, ORDENAVEIS, List.of(), Map.of(), "status", "asc", 2, cursor);
+        assertEquals(Evento.StatusEvento.DISPONIVEL, seguinte.params.get("cursorValor"));
+    }
+
+    @Test
+    void testRecusaCursorDeOutraOrdenacaoOuInvalido() {
+        String cursor = PaginacaoCursor.buscar(new ConsultaFalsa(eventos(3)), ORDENAVEIS, List.of(), Map.of(), "nome", "asc", 2, "")
+                .proximoCursor();
+
+        assertThrows(BadRequestException.class, () -> PaginacaoCursor.buscar(new ConsultaFalsa(List.of()), ORDENAVEIS,
+                List.of(), Map.of(), "nome", "desc", 2, cursor));
+        assertThrows(BadRequestException.class, () -> PaginacaoCursor.buscar(new ConsultaFalsa(List.of()), ORDENAVEIS,
+                List.of(), Map.of(), "dataEvento", "asc", 2, cursor));
+        assertThrows(BadRequestException.class, () -> PaginacaoCursor.buscar(new ConsultaFalsa(List.of()), ORDENAVEIS,
+                List.of(), Map.of(), "nome", "asc", 2, "não é base64"));
+        assertThrows(BadRequestException.class, () -> PaginacaoCursor.buscar(new ConsultaFalsa(List.of()), ORDENAVEIS,
+                List.of(), Map.of(), "localizacao", "asc", 2, ""));
+        assertThrows(BadRequestException.class, () -> PaginacaoCursor.buscar(new ConsultaFalsa(List.of()), ORDENAVEIS,
+                List.of(), Map.of(), "nome", "asc", 0, ""));
+    }
+}
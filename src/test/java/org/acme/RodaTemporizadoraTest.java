@@ -0,0 +1,75 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RodaTemporizadoraTest {
+
+    // Ticks de 100 ms, 8 slots: uma volta cobre 800 ms
+    private final RodaTemporizadora roda = new RodaTemporizadora(100, 8, 0);
+
+    @Test
+    void testVenceNoTickDoPrazo() {
+        roda.agendar(1, 250);
+        roda.agendar(2, 300);
+
+        assertArrayEquals(new long[0], roda.avancar(299));
+        assertArrayEquals(new long[]{1, 2}, roda.avancar(300));
+        assertEquals(0, roda.pendentes());
+    }
+
+    @Test
+    void testPrazoAlemDeUmaVoltaEsperaASuaVolta() {
+        // 2500 ms cai no mesmo slot que 100 ms, três voltas depois
+        roda.agendar(1, 2500);
+        roda.agendar(2, 100);
+
+        assertArrayEquals(new long[]{2}, roda.avancar(100));
+        assertArrayEquals(new long[0], roda.avancar(900));
+        assertArrayEquals(new long[0], roda.avancar(1700));
+        assertEquals(1, roda.pendentes());
+        assertArrayEquals(new long[]{1}, roda.avancar(2500));
+    }
+
+    @Test
+    void testSlotsDaVoltaSeguinteSaoReaproveitados() {
+        roda.avancar(700);
+        // Ticks 8 e 9 voltam aos slots 0 e 1
+        roda.agendar(1, 800);
+        roda.agendar(2, 900);
+
+        assertArrayEquals(new long[]{1}, roda.avancar(850));
+        assertArrayEquals(new long[]{2}, roda.avancar(900));
+    }
+
+    @Test
+    void testAvancoDeMaisDeUmaVoltaTrazTodosOsVencidos() {
+        roda.agendar(1, 100);
+        roda.agendar(2, 700);
+        roda.agendar(3, 1500);
+        roda.agendar(4, 5000);
+
+        long[] vencidos = roda.avancar(2000);
+        Arrays.sort(vencidos);
+        assertArrayEquals(new long[]{1, 2, 3}, vencidos);
+        assertEquals(1, roda.pendentes());
+    }
+
+    @Test
+    void testLoteReagendadoVoltaNoProximoTick() {
+        roda.agendar(1, 100);
+        roda.agendar(2, 100);
+        long[] vencidos = roda.avancar(100);
+        assertArrayEquals(new long[]{1, 2}, vencidos);
+
+        // Como a expiração faz quando o lote falha; prazos já passados também vão para o próximo tick
+        roda.agendar(1, 200);
+        roda.agendar(2, 50);
+        assertArrayEquals(new long[0], roda.avancar(199));
+        assertArrayEquals(new long[]{1, 2}, roda.avancar(200));
+    }
+}
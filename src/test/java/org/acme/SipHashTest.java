@@ -0,0 +1,33 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SipHashTest {
+
+    // Chave 00 01 ... 0f do artigo original, em little-endian
+    private static final long K0 = 0x0706050403020100L;
+    private static final long K1 = 0x0f0e0d0c0b0a0908L;
+
+    @Test
+    void testVetoresDeReferencia() {
+        assertEquals(0x726fdb47dd0e0e31L, SipHash.hash(K0, K1, new byte[0]));
+
+        byte[] mensagem = new byte[15];
+        for (int i = 0; i < mensagem.length; i++) {
+            mensagem[i] = (byte) i;
+        }
+        assertEquals(0xa129ca6149be45e5L, SipHash.hash(K0, K1, mensagem));
+    }
+
+    @Test
+    void testChaveMudaOResultado() {
+        byte[] dados = "cliente/rota".getBytes(StandardCharsets.UTF_8);
+        assertNotEquals(SipHash.hash(K0, K1, dados), SipHash.hash(K0 + 1, K1, dados));
+        assertNotEquals(SipHash.hash(K0, K1, dados), SipHash.hash(K0, K1 + 1, dados));
+    }
+}
@@ -0,0 +1,92 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TokenAcessoTest {
+
+    private static TokenAcesso tokens(String segredo, Duration ttl) {
+        TokenAcesso tokenAcesso = new TokenAcesso();
+        tokenAcesso.segredoConfigurado = Optional.ofNullable(segredo);
+        tokenAcesso.ttl = ttl;
+        tokenAcesso.rotacao = Duration.ofHours(1);
+        tokenAcesso.iniciar();
+        return tokenAcesso;
+    }
+
+    private static Usuario usuario() {
+        Usuario usuario = new Usuario();
+        usuario.id = 42L;
+        usuario.tipo = Usuario.TipoUsuario.ORGANIZADOR;
+        return usuario;
+    }
+
+    @Test
+    void testEmiteEVerifica() {
+        TokenAcesso tokenAcesso = tokens("segredo", Duration.ofMinutes(15));
+        TokenAcesso.Emitido emitido = tokenAcesso.emitir(usuario());
+
+        TokenAcesso.Dados dados = tokenAcesso.verificar(emitido.token());
+        assertNotNull(dados);
+        assertEquals(42L, dados.usuarioId());
+        assertEquals(Usuario.TipoUsuario.ORGANIZADOR, dados.tipo());
+        assertEquals(emitido.expiraEm(), dados.expiraEm());
+    }
+
+    @Test
+    void testReplicasComOMesmoSegredoAceitamOsTokensUmasDasOutras() {
+        String token = tokens("segredo", Duration.ofMinutes(15)).emitir(usuario()).token();
+        assertNotNull(tokens("segredo", Duration.ofMinutes(15)).verificar(token));
+        assertNull(tokens("outro segredo", Duration.ofMinutes(15)).verificar(token));
+        // Sem segredo configurado cada instância sorteia o seu
+        assertNull(tokens(null, Duration.ofMinutes(15)).verificar(token));
+    }
+
+    @Test
+    void testRecusaTokenAlterado() {
+        TokenAcesso tokenAcesso = tokens("segredo", Duration.ofMinutes(15));
+        String token = tokenAcesso.emitir(usuario()).token();
+        String[] partes = token.split("\\.");
+
+        // Outro tipo de usuário nos dados, com a assinatura original
+        byte[] dados = Base64.getUrlDecoder().decode(partes[1]);
+        dados[Long.BYTES] = (byte) Usuario.TipoUsuario.ADMIN.ordinal();
+        String alterado = partes[0] + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(dados)
+                + "." + partes[2];
+        assertNull(tokenAcesso.verificar(alterado));
+
+        // Primeiro caractere da assinatura: o último pode carregar só bits de preenchimento
+        String assinatura = (partes[2].charAt(0) == 'A' ? 'B' : 'A') + partes[2].substring(1);
+        assertNull(tokenAcesso.verificar(partes[0] + "." + partes[1] + "." + assinatura));
+        assertNull(tokenAcesso.verificar((Long.parseLong(partes[0]) - 1) + "." + partes[1] + "." + partes[2]));
+    }
+
+    @Test
+    void testRecusaTokensMalformados() {
+        TokenAcesso tokenAcesso = tokens("segredo", Duration.ofMinutes(15));
+        assertNull(tokenAcesso.verificar(""));
+        assertNull(tokenAcesso.verificar("abc"));
+        assertNull(tokenAcesso.verificar("x.y.z"));
+        assertNull(tokenAcesso.verificar("1.%%%.###"));
+    }
+
+    @Test
+    void testRecusaTokenExpiradoOuRevogado() {
+        TokenAcesso expira = tokens("segredo", Duration.ZERO);
+        assertNull(expira.verificar(expira.emitir(usuario()).token()));
+
+        TokenAcesso tokenAcesso = tokens("segredo", Duration.ofMinutes(15));
+        String token = tokenAcesso.emitir(usuario()).token();
+        tokenAcesso.revogar(tokenAcesso.verificar(token));
+        assertNull(tokenAcesso.verificar(token));
+        // Outro token do mesmo usuário continua valendo
+        assertNotNull(tokenAcesso.verificar(tokenAcesso.emitir(usuario()).token()));
+    }
+}